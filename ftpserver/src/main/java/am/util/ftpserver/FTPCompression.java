@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2017 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.ftpserver;
+
+import org.apache.ftpserver.command.Command;
+import org.apache.ftpserver.command.CommandFactoryFactory;
+import org.apache.ftpserver.command.impl.APPE;
+import org.apache.ftpserver.command.impl.RETR;
+import org.apache.ftpserver.command.impl.STOR;
+import org.apache.ftpserver.command.impl.STOU;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpRequest;
+import org.apache.ftpserver.impl.FtpIoSession;
+import org.apache.ftpserver.impl.FtpServerContext;
+import org.apache.ftpserver.impl.ServerDataConnectionFactory;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+import am.util.ftpserver.util.CompressorPool;
+
+/**
+ * FTP传输压缩（MODE Z）
+ * FtpServer 自带的 MODE Z 每次传输新建默认级别的 Deflater；
+ * 注册后文件传输（RETR、STOR、APPE、STOU）改由 {@link FTPFile} 的读写流压缩、解压：
+ * 可设置压缩级别，Deflater、Inflater 从 {@link CompressorPool} 借出并复用，
+ * 已压缩格式（jpg、mp4、zip 等）下载时仅按存储块封装，不再消耗CPU压缩。
+ * 目录列表等其他数据传输仍由 FtpServer 处理。
+ * Created by Alex on 2026/10/17.
+ */
+@SuppressWarnings("all")
+public class FTPCompression {
+
+    public static final int LEVEL_DEFAULT = Deflater.DEFAULT_COMPRESSION;
+    public static final String[] STORED_EXTENSIONS_DEFAULT = {
+            "jpg", "jpeg", "png", "gif", "webp", "heic",
+            "mp3", "m4a", "aac", "ogg", "flac",
+            "mp4", "m4v", "mkv", "avi", "mov", "3gp", "webm",
+            "zip", "gz", "tgz", "bz2", "xz", "7z", "rar", "apk", "jar",
+            "docx", "xlsx", "pptx"};
+
+    private FTPCompression() {
+        //no instance
+    }
+
+    /**
+     * 注册传输压缩
+     * 使用默认压缩级别及默认的已压缩格式
+     *
+     * @param factory 命令工厂
+     */
+    public static void install(CommandFactoryFactory factory) {
+        install(factory, LEVEL_DEFAULT);
+    }
+
+    /**
+     * 注册传输压缩
+     * 使用默认的已压缩格式
+     *
+     * @param factory 命令工厂
+     * @param level   压缩级别，0-9，-1为默认级别；低端设备上1-3通常已可获得大部分压缩收益
+     */
+    public static void install(CommandFactoryFactory factory, int level) {
+        install(factory, level, Arrays.asList(STORED_EXTENSIONS_DEFAULT));
+    }
+
+    /**
+     * 注册传输压缩
+     *
+     * @param factory    命令工厂
+     * @param level      压缩级别，0-9，-1为默认级别
+     * @param extensions 已压缩格式的扩展名（不含“.”，不区分大小写），下载这些文件时不压缩
+     */
+    public static void install(CommandFactoryFactory factory, int level,
+                               Collection<String> extensions) {
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION)
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        final HashSet<String> stored = new HashSet<>();
+        if (extensions != null) {
+            for (String extension : extensions) {
+                stored.add(extension.toLowerCase(Locale.US));
+            }
+        }
+        factory.addCommand("RETR", new Transfer(new RETR(), level, stored));
+        factory.addCommand("STOR", new Transfer(new STOR(), level, null));
+        factory.addCommand("APPE", new Transfer(new APPE(), level, null));
+        factory.addCommand("STOU", new Transfer(new STOU(), level, null));
+    }
+
+    /**
+     * 文件传输
+     * 数据连接处于 MODE Z 时，关闭 FtpServer 自带的压缩，由视图返回的文件压缩、解压，传输结束后恢复
+     */
+    private static class Transfer implements Command {
+
+        private final Command mDefault;
+        private final int mLevel;
+        private final Set<String> mStored;
+
+        Transfer(Command command, int level, Set<String> stored) {
+            mDefault = command;
+            mLevel = level;
+            mStored = stored;
+        }
+
+        private int getLevel(String name) {
+            if (mStored == null || mStored.isEmpty() || name == null)
+                return mLevel;
+            final int dot = name.lastIndexOf('.');
+            if (dot < 0 || dot < name.lastIndexOf('/'))
+                return mLevel;
+            final String extension = name.substring(dot + 1).toLowerCase(Locale.US);
+            return mStored.contains(extension) ? Deflater.NO_COMPRESSION : mLevel;
+        }
+
+        @Override
+        public void execute(FtpIoSession session, FtpServerContext context, FtpRequest request)
+                throws IOException, FtpException {
+            final ServerDataConnectionFactory connection = session.getDataConnection();
+            final FileSystemView view = session.getFileSystemView();
+            if (connection == null || !connection.isZipMode()
+                    || !(view instanceof FTPFileSystemView)) {
+                mDefault.execute(session, context, request);
+                return;
+            }
+            final FTPFileSystemView files = (FTPFileSystemView) view;
+            connection.setZipMode(false);
+            files.setCompression(getLevel(request.getArgument()));
+            try {
+                mDefault.execute(session, context, request);
+            } finally {
+                files.setCompression(FTPFile.COMPRESSION_OFF);
+                connection.setZipMode(true);
+            }
+        }
+    }
+}
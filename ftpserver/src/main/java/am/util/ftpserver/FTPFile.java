@@ -18,34 +18,50 @@ package am.util.ftpserver;
 
 import org.apache.ftpserver.ftplet.FtpFile;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
-import am.util.ftpserver.util.RandomAccessFileOutputStream;
+import am.util.ftpserver.util.BufferPool;
+import am.util.ftpserver.util.CompressorPool;
+import am.util.ftpserver.util.DirectoryCache;
+import am.util.ftpserver.util.FileAttributes;
+import am.util.ftpserver.util.FileChannelInputStream;
+import am.util.ftpserver.util.PooledOutputStream;
+import am.util.ftpserver.util.SegmentedFile;
 
 /**
  * FTP文件
+ * 传输缓冲从 {@link BufferPool#getInstance()} 借出，流关闭时归还；
+ * 由 {@link #listFiles()} 列出的文件使用 {@link DirectoryCache} 中的属性快照，不再逐项读取文件系统，
+ * 创建、删除、移动及写入文件时使对应目录的缓存失效；
+ * 设置了传输压缩（MODE Z）时，读取的是压缩后的数据，写入的数据解压后保存；
+ * 读写流关闭时将传输的字节数及耗时记录到 {@link FTPMetrics}
  * Created by Alex on 2017/12/20.
  */
 @SuppressWarnings("all")
 public class FTPFile implements FtpFile {
 
     public static final int DEFAULT_SIZE = 1024 * 1024;
+    static final int COMPRESSION_OFF = -2;
     private final String mOwner;
     private final String mGroup;
     private File mFile;
+    private FileAttributes mAttributes;// 列出时的属性快照
     private int mStreamSize;
+    private int mCompression = COMPRESSION_OFF;
 
     public FTPFile(String path, String owner, String group, int streamSize) {
-        mFile = new File(path);
+        this(new File(path), null, owner, group, streamSize);
+    }
+
+    private FTPFile(File file, FileAttributes attributes, String owner, String group,
+                    int streamSize) {
+        mFile = file;
+        mAttributes = attributes;
         mOwner = owner;
         mGroup = group;
         if (streamSize <= 0) {
@@ -55,6 +71,15 @@ public class FTPFile implements FtpFile {
         }
     }
 
+    /**
+     * 设置传输压缩
+     *
+     * @param level 压缩级别，为 {@link #COMPRESSION_OFF} 时不压缩
+     */
+    void setCompression(int level) {
+        mCompression = level;
+    }
+
     @Override
     public String getAbsolutePath() {
         return mFile.getAbsolutePath();
@@ -67,32 +92,52 @@ public class FTPFile implements FtpFile {
 
     @Override
     public boolean isHidden() {
+        final FileAttributes attributes = mAttributes;
+        if (attributes != null)
+            return attributes.isHidden();
         return mFile.isHidden();
     }
 
     @Override
     public boolean isDirectory() {
+        final FileAttributes attributes = mAttributes;
+        if (attributes != null)
+            return attributes.isDirectory();
         return mFile.isDirectory();
     }
 
     @Override
     public boolean isFile() {
+        final FileAttributes attributes = mAttributes;
+        if (attributes != null)
+            return attributes.isFile();
         return mFile.isFile();
     }
 
     public void setFile(String path) {
         mFile = new File(path);
+        mAttributes = null;
     }
 
     @Override
     public boolean doesExist() {
-        if (mFile.exists())
+        final FileAttributes attributes = mAttributes;
+        if (attributes != null)
+            return attributes.exists();
+        if (mFile.exists() || FileAttributes.isSymbolicLink(mFile))
             return true;
+        // 部分文件系统中exists()会漏掉实际存在的文件，以所在目录中的名称为准；
+        // 名称索引中没有时直接返回，有时再读取目录确认，避免索引滞后
         final File parent = mFile.getParentFile();
-        final File[] children = parent.listFiles();
-        if (children != null) {
-            for (File child : children) {
-                if (mFile.equals(child))
+        if (parent == null)
+            return false;
+        final String name = mFile.getName();
+        if (!DirectoryCache.getInstance().contains(parent, name))
+            return false;
+        final String[] names = parent.list();
+        if (names != null) {
+            for (String child : names) {
+                if (name.equals(child))
                     return true;
             }
         }
@@ -101,11 +146,17 @@ public class FTPFile implements FtpFile {
 
     @Override
     public boolean isReadable() {
+        final FileAttributes attributes = mAttributes;
+        if (attributes != null)
+            return attributes.isReadable();
         return mFile.canRead();
     }
 
     @Override
     public boolean isWritable() {
+        final FileAttributes attributes = mAttributes;
+        if (attributes != null)
+            return attributes.isWritable();
         if (mFile.exists())
             return mFile.canWrite();
         // 此处可能死循环
@@ -120,6 +171,9 @@ public class FTPFile implements FtpFile {
 
     @Override
     public boolean isRemovable() {
+        final FileAttributes attributes = mAttributes;
+        if (attributes != null)
+            return attributes.isWritable();
         return mFile.canWrite();
     }
 
@@ -140,16 +194,24 @@ public class FTPFile implements FtpFile {
 
     @Override
     public long getLastModified() {
+        final FileAttributes attributes = mAttributes;
+        if (attributes != null)
+            return attributes.getLastModified();
         return mFile.lastModified();
     }
 
     @Override
     public boolean setLastModified(long time) {
-        return mFile.setLastModified(time);
+        final boolean result = mFile.setLastModified(time);
+        invalidate();
+        return result;
     }
 
     @Override
     public long getSize() {
+        final FileAttributes attributes = mAttributes;
+        if (attributes != null)
+            return attributes.getSize();
         return mFile.length();
     }
 
@@ -160,52 +222,120 @@ public class FTPFile implements FtpFile {
 
     @Override
     public boolean mkdir() {
-        return mFile.mkdir();
+        final boolean result = mFile.mkdir();
+        mAttributes = null;
+        if (result)
+            DirectoryCache.getInstance().onCreated(mFile);
+        return result;
     }
 
     @Override
     public boolean delete() {
-        return mFile.delete();
+        final boolean result = mFile.delete();
+        mAttributes = null;
+        if (result) {
+            DirectoryCache.getInstance().onDeleted(mFile);
+            SegmentedFile.forget(mFile);
+        }
+        return result;
     }
 
     @Override
     public boolean move(FtpFile destination) {
-        return mFile.renameTo(new File(destination.getAbsolutePath()));
+        final File target = new File(destination.getAbsolutePath());
+        final boolean result = mFile.renameTo(target);
+        mAttributes = null;
+        if (destination instanceof FTPFile)
+            ((FTPFile) destination).mAttributes = null;
+        if (result) {
+            DirectoryCache.getInstance().onDeleted(mFile);
+            DirectoryCache.getInstance().onCreated(target);
+            SegmentedFile.forget(mFile);
+            SegmentedFile.forget(target);
+        }
+        return result;
     }
 
     @Override
     public List<? extends FtpFile> listFiles() {
-        final File[] children = mFile.listFiles();
-        if (children != null) {
-            final ArrayList<FTPFile> files = new ArrayList<>(children.length);
-            for (File child : children) {
-                files.add(new FTPFile(child.getPath(), mOwner, mGroup, mStreamSize));
-            }
-            return files;
+        final FileAttributes[] children = DirectoryCache.getInstance().list(mFile);
+        final ArrayList<FTPFile> files = new ArrayList<>(children.length);
+        for (FileAttributes child : children) {
+            files.add(new FTPFile(child.getFile(), child, mOwner, mGroup, mStreamSize));
         }
-        return new ArrayList<>(0);
+        return files;
+    }
+
+    /**
+     * 使所在目录的列表缓存及自身的属性快照失效
+     */
+    private void invalidate() {
+        mAttributes = null;
+        DirectoryCache.getInstance().invalidate(mFile.getParentFile());
     }
 
     @Override
     public OutputStream createOutputStream(long offset) throws IOException {
-        final OutputStream output;
-        if (offset == 0) {
-            output = new FileOutputStream(mFile);
-        } else if (offset == mFile.length()) {
-            output = new FileOutputStream(mFile, true);
-        } else {
-            final RandomAccessFileOutputStream random =
-                    new RandomAccessFileOutputStream(mFile, "rw");
-            random.seek(offset);
-            output = random;
-        }
-        return new BufferedOutputStream(output, mStreamSize);
+        // 同一文件的多个连接可同时按位置写入不同区间，见SegmentedFile
+        final OutputStream output = SegmentedFile.open(mFile, offset);
+        mAttributes = null;
+        DirectoryCache.getInstance().onCreated(mFile);
+        final long start = System.nanoTime();
+        final OutputStream stream = new PooledOutputStream(output, mStreamSize,
+                BufferPool.getInstance()) {
+
+            private long mWritten;
+
+            @Override
+            public synchronized void write(int b) throws IOException {
+                super.write(b);
+                mWritten++;
+            }
+
+            @Override
+            public synchronized void write(byte[] b, int off, int len) throws IOException {
+                super.write(b, off, len);
+                mWritten += len;
+            }
+
+            @Override
+            public synchronized void close() throws IOException {
+                if (buf == null)
+                    return;
+                try {
+                    super.close();
+                } finally {
+                    invalidate();
+                    FTPMetrics.getInstance().recordTransfer(true, mWritten,
+                            System.nanoTime() - start);
+                }
+            }
+        };
+        if (mCompression == COMPRESSION_OFF)
+            return stream;
+        return CompressorPool.getInstance().inflate(stream, 0);
     }
 
     @Override
-    public InputStream createInputStream(long offset) throws IOException {
-        final FileInputStream input = new FileInputStream(mFile);
-        input.skip(offset);
-        return new BufferedInputStream(input, mStreamSize);
+    public InputStream createInputStream(final long offset) throws IOException {
+        final long start = System.nanoTime();
+        final InputStream stream = new FileChannelInputStream(mFile, offset, mStreamSize,
+                BufferPool.getInstance()) {
+            @Override
+            public synchronized void close() throws IOException {
+                if (buf == null)
+                    return;
+                final long read = getPosition() - Math.max(0, offset);
+                try {
+                    super.close();
+                } finally {
+                    FTPMetrics.getInstance().recordTransfer(false, read,
+                            System.nanoTime() - start);
+                }
+            }
+        };
+        if (mCompression == COMPRESSION_OFF)
+            return stream;
+        return CompressorPool.getInstance().deflate(stream, mCompression, 0);
     }
 }
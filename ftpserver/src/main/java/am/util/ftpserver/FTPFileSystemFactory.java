@@ -21,23 +21,16 @@ import org.apache.ftpserver.ftplet.FileSystemView;
 import org.apache.ftpserver.ftplet.FtpException;
 import org.apache.ftpserver.ftplet.User;
 
-import java.util.ArrayList;
-
 /**
  * FTP文件系统视图工厂
+ * 每个会话新建视图，不再复用已释放的视图：释放后仍可能被会话引用（如重复释放），
+ * 复用会使两个会话共用同一视图及工作目录；视图仅包含几个字段，新建的开销远小于池化的同步开销。
  * Created by Alex on 2017/12/19.
  */
 public class FTPFileSystemFactory implements FileSystemFactory {
 
-    private static volatile FTPFileSystemFactory FACTORY;
-
-    private final ArrayList<FTPFileSystemView> mViews = new ArrayList<>();
-
     public static FTPFileSystemFactory getInstance() {
-        if (FACTORY == null) {
-            FACTORY = new FTPFileSystemFactory();
-        }
-        return FACTORY;
+        return Holder.FACTORY;
     }
 
     @Override
@@ -45,22 +38,11 @@ public class FTPFileSystemFactory implements FileSystemFactory {
         final String home = user.getHomeDirectory();
         final String owner = user.getName();
         final String group = user.getName();
-        final int streamSize = FTPFile.DEFAULT_SIZE;
-
-        synchronized (this) {
-            if (mViews.isEmpty()) {
-                return new FTPFileSystemView(home, owner, group, streamSize);
-            } else {
-                final FTPFileSystemView view = mViews.remove(0);
-                view.init(home, owner, group, streamSize);
-                return view;
-            }
-        }
+        final int streamSize = FTPUser.getStreamSize(user);
+        return new FTPFileSystemView(home, owner, group, streamSize);
     }
 
-    void saveFileSystemView(FTPFileSystemView view) {
-        synchronized (this) {
-            mViews.add(view);
-        }
+    private static class Holder {
+        private static final FTPFileSystemFactory FACTORY = new FTPFileSystemFactory();
     }
-}
\ No newline at end of file
+}
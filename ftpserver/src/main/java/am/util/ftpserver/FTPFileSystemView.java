@@ -16,30 +16,28 @@
 
 package am.util.ftpserver;
 
-import android.text.TextUtils;
-
 import org.apache.ftpserver.ftplet.FileSystemView;
 import org.apache.ftpserver.ftplet.FtpException;
 import org.apache.ftpserver.ftplet.FtpFile;
 
 import java.io.File;
-import java.util.ArrayList;
 
 /**
  * FTP文件系统视图
+ * 返回的 {@link FTPFile} 每次新建且不再被修改，切换工作目录或释放视图后，进行中的传输仍持有的文件不受影响。
+ * 传输压缩（见 {@link FTPCompression}）仅对设置期间获取的文件生效。
  * Created by Alex on 2017/12/20.
  */
 @SuppressWarnings("all")
 public class FTPFileSystemView implements FileSystemView {
 
-    private final ArrayList<FTPFile> mChildren = new ArrayList<>();
-    private final ArrayList<FTPFile> mSaved = new ArrayList<>();
     private String mOwner;
     private String mGroup;
     private FTPFile mHome;
     private FTPFile mWorking;
     private String mPath;
     private int mStreamSize;
+    private volatile int mCompression = FTPFile.COMPRESSION_OFF;
 
     public FTPFileSystemView(String home, String owner, String group, int streamSize) {
         init(home, owner, group, streamSize);
@@ -49,13 +47,9 @@ public class FTPFileSystemView implements FileSystemView {
         mOwner = owner;
         mGroup = group;
         mStreamSize = streamSize;
-        if (mHome == null || !TextUtils.equals(mHome.getAbsolutePath(), home)) {
-            mHome = new FTPFile(home, mOwner, mGroup, mStreamSize);
-        }
-        if (mWorking == null || !TextUtils.equals(mPath, home)) {
-            mPath = home;
-            mWorking = new FTPFile(mPath, mOwner, mGroup, mStreamSize);
-        }
+        mPath = home;
+        mHome = new FTPFile(home, mOwner, mGroup, mStreamSize);
+        mWorking = new FTPFile(mPath, mOwner, mGroup, mStreamSize);
     }
 
     @Override
@@ -83,7 +77,7 @@ public class FTPFileSystemView implements FileSystemView {
         if (working.length() * 2 == absPath.length() && (working + working).equals(absPath))
             return true;
         mPath = path;
-        mWorking.setFile(mPath);
+        mWorking = new FTPFile(mPath, mOwner, mGroup, mStreamSize);
         return true;
     }
 
@@ -98,15 +92,19 @@ public class FTPFileSystemView implements FileSystemView {
         } else {
             path = working + "/" + file;
         }
-        final FTPFile child;
-        if (mSaved.isEmpty()) {
-            child = new FTPFile(path, mOwner, mGroup, mStreamSize);
-        } else {
-            child = mSaved.remove(0);
-            child.setFile(path);
-        }
-        mChildren.add(child);
-        return child;
+        final FTPFile result = new FTPFile(path, mOwner, mGroup, mStreamSize);
+        result.setCompression(mCompression);
+        return result;
+    }
+
+    /**
+     * 设置传输压缩
+     * 此后获取的文件读写时压缩、解压
+     *
+     * @param level 压缩级别，为 {@link FTPFile#COMPRESSION_OFF} 时不压缩
+     */
+    void setCompression(int level) {
+        mCompression = level;
     }
 
     @Override
@@ -116,8 +114,6 @@ public class FTPFileSystemView implements FileSystemView {
 
     @Override
     public void dispose() {
-        mSaved.addAll(mChildren);
-        mChildren.clear();
-        FTPFileSystemFactory.getInstance().saveFileSystemView(this);
+        // 不持有需要释放的资源
     }
 }
@@ -0,0 +1,339 @@
+/*
+ * Copyright (C) 2017 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.ftpserver;
+
+import org.apache.ftpserver.command.Command;
+import org.apache.ftpserver.command.CommandFactoryFactory;
+import org.apache.ftpserver.command.impl.FEAT;
+import org.apache.ftpserver.command.impl.OPTS;
+import org.apache.ftpserver.ftplet.DefaultFtpReply;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.FtpReply;
+import org.apache.ftpserver.ftplet.FtpRequest;
+import org.apache.ftpserver.impl.FtpIoSession;
+import org.apache.ftpserver.impl.FtpServerContext;
+import org.apache.ftpserver.impl.LocalizedFtpReply;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Locale;
+
+import am.util.ftpserver.util.FileDigest;
+
+/**
+ * FTP校验命令
+ * 客户端可直接在服务器上计算文件摘要，无需下载文件即可校验传输结果：
+ * HASH（draft-bryan-ftpext-hash）：OPTS HASH 选择算法，RANG 设置区间，HASH 返回“213 算法 起始-结束 摘要 文件名”；
+ * XCRC、XMD5、XSHA1、XSHA256：返回“250 摘要”，文件名后可跟起始位置及结束位置（不含）。
+ * 摘要由 {@link FileDigest} 计算并按文件路径、大小及修改时间缓存。
+ * Created by Alex on 2026/10/17.
+ */
+@SuppressWarnings("all")
+public class FTPHashCommands {
+
+    public static final String ALGORITHM_DEFAULT = FileDigest.SHA_1;
+    private static final String ATTRIBUTE_ALGORITHM = "am.util.ftpserver.hash.algorithm";
+    private static final String ATTRIBUTE_RANGE = "am.util.ftpserver.hash.range";
+    private static final String[] ALGORITHMS = {FileDigest.SHA_1, FileDigest.SHA_256,
+            FileDigest.SHA_512, FileDigest.MD5, FileDigest.CRC_32};
+
+    private FTPHashCommands() {
+        //no instance
+    }
+
+    /**
+     * 注册校验命令
+     * 同时替换 OPTS 及 FEAT，以支持 OPTS HASH 并在 FEAT 中声明 HASH
+     *
+     * @param factory 命令工厂
+     */
+    public static void install(CommandFactoryFactory factory) {
+        factory.addCommand("HASH", new HASH());
+        factory.addCommand("RANG", new RANG());
+        factory.addCommand("OPTS", new HashOPTS());
+        factory.addCommand("FEAT", new HashFEAT());
+        factory.addCommand("XCRC", new XDigest(FileDigest.CRC_32));
+        factory.addCommand("XMD5", new XDigest(FileDigest.MD5));
+        factory.addCommand("XSHA1", new XDigest(FileDigest.SHA_1));
+        factory.addCommand("XSHA256", new XDigest(FileDigest.SHA_256));
+        factory.addCommand("XSHA512", new XDigest(FileDigest.SHA_512));
+    }
+
+    private static String getAlgorithm(FtpIoSession session) {
+        final Object algorithm = session.getAttribute(ATTRIBUTE_ALGORITHM);
+        return algorithm instanceof String ? (String) algorithm : ALGORITHM_DEFAULT;
+    }
+
+    private static String findAlgorithm(String name) {
+        for (String algorithm : ALGORITHMS) {
+            if (algorithm.equalsIgnoreCase(name))
+                return algorithm;
+        }
+        return null;
+    }
+
+    private static long parsePosition(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void reply(FtpIoSession session, int code, String message) {
+        session.write(new DefaultFtpReply(code, message));
+    }
+
+    /**
+     * 获取可读取的本地文件
+     *
+     * @return 文件，不存在、不是文件或不可读取时回复550并返回null
+     */
+    private static File getReadableFile(FtpIoSession session, String name) throws FtpException {
+        FtpFile file = null;
+        try {
+            file = session.getFileSystemView().getFile(name);
+        } catch (Exception e) {
+            // 无效路径
+        }
+        if (file == null || !file.doesExist() || !file.isFile() || !file.isReadable()
+                || !(file.getPhysicalFile() instanceof File)) {
+            reply(session, FtpReply.REPLY_550_REQUESTED_ACTION_NOT_TAKEN,
+                    "File not found or not readable: " + name);
+            return null;
+        }
+        return (File) file.getPhysicalFile();
+    }
+
+    /**
+     * HASH 文件名
+     */
+    private static class HASH implements Command {
+
+        @Override
+        public void execute(FtpIoSession session, FtpServerContext context, FtpRequest request)
+                throws IOException, FtpException {
+            session.resetState();
+            final long[] range = (long[]) session.removeAttribute(ATTRIBUTE_RANGE);
+            final String name = request.getArgument();
+            if (name == null || name.length() == 0) {
+                reply(session, FtpReply.REPLY_501_SYNTAX_ERROR_IN_PARAMETERS_OR_ARGUMENTS,
+                        "Syntax error in parameters or arguments.");
+                return;
+            }
+            final File file = getReadableFile(session, name);
+            if (file == null)
+                return;
+            final String algorithm = getAlgorithm(session);
+            final long size = file.length();
+            final long start = range == null ? 0 : Math.min(range[0], size);
+            final long end = range == null ? size : Math.min(range[1] + 1, size);
+            final String hash;
+            try {
+                hash = FileDigest.digest(file, algorithm, start, end);
+            } catch (IOException e) {
+                reply(session, FtpReply.REPLY_550_REQUESTED_ACTION_NOT_TAKEN,
+                        "Unable to read file: " + name);
+                return;
+            }
+            reply(session, FtpReply.REPLY_213_FILE_STATUS, algorithm + " " + start + "-"
+                    + Math.max(start, end - 1) + " " + hash + " " + name);
+        }
+    }
+
+    /**
+     * RANG 起始位置 结束位置（含）
+     * RANG 1 0 取消区间
+     */
+    private static class RANG implements Command {
+
+        @Override
+        public void execute(FtpIoSession session, FtpServerContext context, FtpRequest request)
+                throws IOException, FtpException {
+            session.resetState();
+            final String argument = request.getArgument();
+            final String[] values = argument == null ? new String[0] : argument.trim().split("\\s+");
+            final long start = values.length == 2 ? parsePosition(values[0]) : -1;
+            final long end = values.length == 2 ? parsePosition(values[1]) : -1;
+            if (start < 0 || end < 0) {
+                reply(session, FtpReply.REPLY_501_SYNTAX_ERROR_IN_PARAMETERS_OR_ARGUMENTS,
+                        "Syntax error in parameters or arguments.");
+                return;
+            }
+            if (start == 1 && end == 0) {
+                session.removeAttribute(ATTRIBUTE_RANGE);
+                reply(session, FtpReply.REPLY_350_REQUESTED_FILE_ACTION_PENDING_FURTHER_INFORMATION,
+                        "Range reset.");
+                return;
+            }
+            if (start > end) {
+                reply(session, FtpReply.REPLY_501_SYNTAX_ERROR_IN_PARAMETERS_OR_ARGUMENTS,
+                        "Invalid range.");
+                return;
+            }
+            session.setAttribute(ATTRIBUTE_RANGE, new long[]{start, end});
+            reply(session, FtpReply.REPLY_350_REQUESTED_FILE_ACTION_PENDING_FURTHER_INFORMATION,
+                    "Restarting at " + start + ". End byte range at " + end + ".");
+        }
+    }
+
+    /**
+     * OPTS HASH [算法]，其他选项交由默认实现处理
+     */
+    private static class HashOPTS implements Command {
+
+        private final OPTS mDefault = new OPTS();
+
+        @Override
+        public void execute(FtpIoSession session, FtpServerContext context, FtpRequest request)
+                throws IOException, FtpException {
+            final String argument = request.getArgument();
+            final String[] values = argument == null ? new String[0] : argument.trim().split("\\s+");
+            if (values.length == 0 || !"HASH".equalsIgnoreCase(values[0])) {
+                mDefault.execute(session, context, request);
+                return;
+            }
+            session.resetState();
+            if (values.length == 1) {
+                reply(session, FtpReply.REPLY_200_COMMAND_OKAY, getAlgorithm(session));
+                return;
+            }
+            final String algorithm = findAlgorithm(values[1]);
+            if (values.length > 2 || algorithm == null) {
+                reply(session, FtpReply.REPLY_504_COMMAND_NOT_IMPLEMENTED_FOR_THAT_PARAMETER,
+                        "Unknown algorithm, current selection not changed.");
+                return;
+            }
+            session.setAttribute(ATTRIBUTE_ALGORITHM, algorithm);
+            reply(session, FtpReply.REPLY_200_COMMAND_OKAY, algorithm);
+        }
+    }
+
+    /**
+     * FEAT，在默认特性列表末尾加入 HASH 及 RANG
+     */
+    private static class HashFEAT implements Command {
+
+        private final FEAT mDefault = new FEAT();
+
+        @Override
+        public void execute(FtpIoSession session, FtpServerContext context, FtpRequest request)
+                throws IOException, FtpException {
+            final LocalizedFtpReply features = LocalizedFtpReply.translate(session, request,
+                    context, FtpReply.REPLY_211_SYSTEM_STATUS_REPLY, "FEAT", null);
+            final String message = features == null ? null : features.getMessage();
+            final int last = message == null ? -1 : message.lastIndexOf('\n');
+            if (last < 0) {
+                mDefault.execute(session, context, request);
+                return;
+            }
+            session.resetState();
+            final String selected = getAlgorithm(session);
+            final StringBuilder hash = new StringBuilder(" HASH ");
+            for (int i = 0; i < ALGORITHMS.length; i++) {
+                if (i > 0)
+                    hash.append(';');
+                hash.append(ALGORITHMS[i]);
+                if (ALGORITHMS[i].equals(selected))
+                    hash.append('*');
+            }
+            final String content = message.substring(0, last + 1) + hash + "\n RANG\n"
+                    + message.substring(last + 1);
+            reply(session, FtpReply.REPLY_211_SYSTEM_STATUS_REPLY, content);
+        }
+    }
+
+    /**
+     * XCRC、XMD5、XSHA1 等：命令 文件名 [起始位置 [结束位置]]
+     * 文件名含空格时可用双引号包含
+     */
+    private static class XDigest implements Command {
+
+        private final String mAlgorithm;
+
+        XDigest(String algorithm) {
+            mAlgorithm = algorithm;
+        }
+
+        @Override
+        public void execute(FtpIoSession session, FtpServerContext context, FtpRequest request)
+                throws IOException, FtpException {
+            session.resetState();
+            String argument = request.getArgument();
+            argument = argument == null ? "" : argument.trim();
+            String name;
+            final ArrayList<Long> positions = new ArrayList<>(2);
+            if (argument.startsWith("\"")) {
+                final int close = argument.indexOf('"', 1);
+                name = close < 0 ? null : argument.substring(1, close);
+                if (name != null)
+                    argument = argument.substring(close + 1).trim();
+            } else {
+                // 文件名本身可能含空格，仅将末尾最多两个数字视为位置
+                name = argument;
+                for (int i = 0; i < 2; i++) {
+                    final int space = name.lastIndexOf(' ');
+                    if (space < 0)
+                        break;
+                    final long position = parsePosition(name.substring(space + 1));
+                    if (position < 0)
+                        break;
+                    positions.add(0, position);
+                    name = name.substring(0, space).trim();
+                }
+                argument = "";
+            }
+            if (name != null && argument.length() > 0) {
+                for (String value : argument.split("\\s+")) {
+                    final long position = parsePosition(value);
+                    if (position < 0 || positions.size() >= 2) {
+                        name = null;
+                        break;
+                    }
+                    positions.add(position);
+                }
+            }
+            if (name == null || name.length() == 0) {
+                reply(session, FtpReply.REPLY_501_SYNTAX_ERROR_IN_PARAMETERS_OR_ARGUMENTS,
+                        "Syntax error in parameters or arguments.");
+                return;
+            }
+            final long start = positions.size() > 0 ? positions.get(0) : 0;
+            final long end = positions.size() > 1 ? positions.get(1) : -1;
+            if (end >= 0 && end < start) {
+                reply(session, FtpReply.REPLY_501_SYNTAX_ERROR_IN_PARAMETERS_OR_ARGUMENTS,
+                        "Invalid range.");
+                return;
+            }
+            final File file = getReadableFile(session, name);
+            if (file == null)
+                return;
+            final String hash;
+            try {
+                hash = FileDigest.digest(file, mAlgorithm, start, end);
+            } catch (IOException e) {
+                reply(session, FtpReply.REPLY_550_REQUESTED_ACTION_NOT_TAKEN,
+                        "Unable to read file: " + name);
+                return;
+            }
+            reply(session, FtpReply.REPLY_250_REQUESTED_FILE_ACTION_OKAY,
+                    FileDigest.CRC_32.equals(mAlgorithm) ? hash.toUpperCase(Locale.US) : hash);
+        }
+    }
+}
@@ -20,9 +20,12 @@ import org.apache.ftpserver.ConnectionConfigFactory;
 import org.apache.ftpserver.DataConnectionConfigurationFactory;
 import org.apache.ftpserver.FtpServer;
 import org.apache.ftpserver.FtpServerFactory;
+import org.apache.ftpserver.command.CommandFactoryFactory;
+import org.apache.ftpserver.ftplet.Ftplet;
 import org.apache.ftpserver.listener.ListenerFactory;
 
 import java.util.Collection;
+import java.util.LinkedHashMap;
 
 /**
  * FTP辅助器
@@ -35,6 +38,31 @@ public class FTPHelper {
         //no instance
     }
 
+    /**
+     * 创建命令工厂
+     * 在默认命令的基础上加入校验命令及传输压缩，见 {@link FTPHashCommands}、{@link FTPCompression}
+     *
+     * @return 命令工厂
+     */
+    public static CommandFactoryFactory createCommandFactory() {
+        final CommandFactoryFactory factory = new CommandFactoryFactory();
+        FTPHashCommands.install(factory);
+        FTPCompression.install(factory);
+        return factory;
+    }
+
+    /**
+     * 创建Ftplet
+     * 包含运行指标记录，见 {@link FTPMetrics}
+     *
+     * @return Ftplet
+     */
+    public static LinkedHashMap<String, Ftplet> createFtplets() {
+        final LinkedHashMap<String, Ftplet> ftplets = new LinkedHashMap<>();
+        ftplets.put("metrics", new FTPMetricsFtplet());
+        return ftplets;
+    }
+
     public static FtpServer createServer(int port, int maxLoginFailures, int loginFailureDelay,
                                          boolean anonymousEnable, String anonymousHomeDirectory,
                                          FTPUser... users) {
@@ -53,6 +81,8 @@ public class FTPHelper {
         server.setFileSystem(FTPFileSystemFactory.getInstance());
         server.addListener("default", listener.createListener());
         server.setConnectionConfig(connection.createConnectionConfig());
+        server.setCommandFactory(createCommandFactory().createCommandFactory());
+        server.setFtplets(createFtplets());
 
         return server.createServer();
     }
@@ -75,6 +105,8 @@ public class FTPHelper {
         server.setFileSystem(FTPFileSystemFactory.getInstance());
         server.addListener("default", listener.createListener());
         server.setConnectionConfig(connection.createConnectionConfig());
+        server.setCommandFactory(createCommandFactory().createCommandFactory());
+        server.setFtplets(createFtplets());
 
         return server.createServer();
     }
@@ -0,0 +1,358 @@
+/*
+ * Copyright (C) 2017 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.ftpserver;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import am.util.ftpserver.util.BufferPool;
+import am.util.ftpserver.util.DirectoryCache;
+import am.util.ftpserver.util.Histogram;
+
+/**
+ * FTP运行指标
+ * 记录各命令耗时（微秒）、每次传输的速率（字节/秒）、会话数、登录结果及缓冲池、目录缓存的命中情况；
+ * 记录只做原子自增，不分配对象，命令耗时由 {@link FTPMetricsFtplet} 记录，传输速率由 {@link FTPFile} 的读写流关闭时记录。
+ * 可通过各获取方法或 {@link #dump()} 随时读取，也可通过 {@link #startDump(File, long)} 定期追加到本地文件。
+ * Created by Alex on 2026/10/17.
+ */
+@SuppressWarnings("all")
+public class FTPMetrics {
+
+    public static final String COMMAND_OTHER = "OTHER";
+    private static final String[] COMMANDS = {"USER", "PASS", "LIST", "NLST", "MLSD", "MLST",
+            "RETR", "STOR", "APPE", "STOU", "CWD", "CDUP", "PWD", "SIZE", "MDTM", "DELE", "MKD",
+            "RMD", "RNFR", "RNTO", "HASH", COMMAND_OTHER};
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static volatile FTPMetrics METRICS;
+    private final HashMap<String, Histogram> mCommands = new HashMap<>();// 构造后只读
+    private final Histogram mDownloadRates = new Histogram();
+    private final Histogram mUploadRates = new Histogram();
+    private final AtomicLong mDownloadBytes = new AtomicLong();
+    private final AtomicLong mUploadBytes = new AtomicLong();
+    private final AtomicInteger mSessions = new AtomicInteger();
+    private final AtomicInteger mPeakSessions = new AtomicInteger();
+    private final AtomicLong mConnections = new AtomicLong();
+    private final AtomicLong mLogins = new AtomicLong();
+    private final AtomicLong mFailedLogins = new AtomicLong();
+    private final Object mDumpLock = new Object();
+    private ScheduledExecutorService mDumper;
+    private long mLastDumpTime;// 定期输出的统计窗口，仅由定期输出更新
+    private long mLastFailedLogins;
+
+    public FTPMetrics() {
+        for (String command : COMMANDS) {
+            mCommands.put(command, new Histogram());
+        }
+    }
+
+    /**
+     * 获取共享运行指标
+     *
+     * @return 运行指标
+     */
+    public static FTPMetrics getInstance() {
+        FTPMetrics metrics = METRICS;
+        if (metrics == null) {
+            synchronized (FTPMetrics.class) {
+                metrics = METRICS;
+                if (metrics == null) {
+                    metrics = new FTPMetrics();
+                    METRICS = metrics;
+                }
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * 记录命令耗时
+     *
+     * @param command 命令（大写）
+     * @param nanos   耗时（纳秒）
+     */
+    public void recordCommand(String command, long nanos) {
+        Histogram histogram = command == null ? null : mCommands.get(command);
+        if (histogram == null)
+            histogram = mCommands.get(COMMAND_OTHER);
+        histogram.record(nanos / 1000);
+    }
+
+    /**
+     * 记录传输
+     *
+     * @param upload 是否为上传
+     * @param bytes  文件字节数（传输压缩时为压缩前）
+     * @param nanos  耗时（纳秒）
+     */
+    public void recordTransfer(boolean upload, long bytes, long nanos) {
+        final long rate = nanos <= 0 ? bytes : (long) (bytes * 1e9 / nanos);
+        if (upload) {
+            mUploadBytes.addAndGet(bytes);
+            mUploadRates.record(rate);
+        } else {
+            mDownloadBytes.addAndGet(bytes);
+            mDownloadRates.record(rate);
+        }
+    }
+
+    void onConnect() {
+        mConnections.incrementAndGet();
+        final int sessions = mSessions.incrementAndGet();
+        int peak;
+        while (sessions > (peak = mPeakSessions.get())
+                && !mPeakSessions.compareAndSet(peak, sessions)) {
+            // 重试
+        }
+    }
+
+    void onDisconnect() {
+        mSessions.decrementAndGet();
+    }
+
+    void onLogin(boolean succeed) {
+        if (succeed)
+            mLogins.incrementAndGet();
+        else
+            mFailedLogins.incrementAndGet();
+    }
+
+    /**
+     * 获取命令耗时
+     *
+     * @param command 命令（大写），未单独统计的命令计入 {@link #COMMAND_OTHER}
+     * @return 耗时直方图（微秒）
+     */
+    public Histogram getCommandLatency(String command) {
+        final Histogram histogram = mCommands.get(command);
+        return histogram == null ? mCommands.get(COMMAND_OTHER) : histogram;
+    }
+
+    /**
+     * 获取传输速率
+     *
+     * @param upload 是否为上传
+     * @return 每次传输速率的直方图（字节/秒）
+     */
+    public Histogram getTransferRate(boolean upload) {
+        return upload ? mUploadRates : mDownloadRates;
+    }
+
+    public long getTransferredBytes(boolean upload) {
+        return upload ? mUploadBytes.get() : mDownloadBytes.get();
+    }
+
+    public int getActiveSessions() {
+        return mSessions.get();
+    }
+
+    public int getPeakSessions() {
+        return mPeakSessions.get();
+    }
+
+    public long getConnections() {
+        return mConnections.get();
+    }
+
+    public long getLogins() {
+        return mLogins.get();
+    }
+
+    public long getFailedLogins() {
+        return mFailedLogins.get();
+    }
+
+    /**
+     * 清空全部指标
+     * 当前会话数不清空
+     */
+    public void reset() {
+        for (Histogram histogram : mCommands.values()) {
+            histogram.reset();
+        }
+        mDownloadRates.reset();
+        mUploadRates.reset();
+        mDownloadBytes.set(0);
+        mUploadBytes.set(0);
+        mPeakSessions.set(mSessions.get());
+        mConnections.set(0);
+        mLogins.set(0);
+        mFailedLogins.set(0);
+        synchronized (mDumpLock) {
+            mLastFailedLogins = 0;
+        }
+    }
+
+    /**
+     * 输出全部指标
+     *
+     * @return 文本，每项一行
+     */
+    public String dump() {
+        return dump(false);
+    }
+
+    /**
+     * 输出全部指标
+     *
+     * @param periodic 是否为定期输出，仅定期输出计算并更新
+     *                 每分钟登录失败次数的统计窗口
+     * @return 文本，每项一行
+     */
+    private String dump(boolean periodic) {
+        final StringBuilder builder = new StringBuilder(2048);
+        builder.append("time: ").append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS",
+                Locale.US).format(new Date())).append('\n');
+        builder.append("sessions: active=").append(getActiveSessions())
+                .append(" peak=").append(getPeakSessions())
+                .append(" connections=").append(getConnections()).append('\n');
+        builder.append("logins: succeed=").append(getLogins())
+                .append(" failed=").append(getFailedLogins());
+        if (periodic) {
+            synchronized (mDumpLock) {
+                final long now = System.currentTimeMillis();
+                final long failed = getFailedLogins();
+                if (mLastDumpTime > 0 && now > mLastDumpTime) {
+                    builder.append(" failed/min=").append(String.format(Locale.US, "%.2f",
+                            (failed - mLastFailedLogins) * 60000.0 / (now - mLastDumpTime)));
+                }
+                mLastDumpTime = now;
+                mLastFailedLogins = failed;
+            }
+        }
+        builder.append('\n');
+        for (String command : COMMANDS) {
+            final Histogram histogram = mCommands.get(command);
+            if (histogram.getCount() > 0)
+                append(builder, "command " + command + " (us)", histogram);
+        }
+        builder.append("download: bytes=").append(getTransferredBytes(false)).append('\n');
+        append(builder, "download rate (B/s)", mDownloadRates);
+        builder.append("upload: bytes=").append(getTransferredBytes(true)).append('\n');
+        append(builder, "upload rate (B/s)", mUploadRates);
+        final BufferPool buffers = BufferPool.getInstance();
+        appendRatio(builder, "buffer pool", buffers.getHitCount(), buffers.getMissCount());
+        final DirectoryCache directories = DirectoryCache.getInstance();
+        appendRatio(builder, "directory cache", directories.getHitCount(),
+                directories.getMissCount());
+        return builder.toString();
+    }
+
+    private static void append(StringBuilder builder, String name, Histogram histogram) {
+        builder.append(name).append(": count=").append(histogram.getCount())
+                .append(" mean=").append(histogram.getMean())
+                .append(" p50=").append(histogram.getPercentile(50))
+                .append(" p90=").append(histogram.getPercentile(90))
+                .append(" p99=").append(histogram.getPercentile(99))
+                .append(" max=").append(histogram.getMax()).append('\n');
+    }
+
+    private static void appendRatio(StringBuilder builder, String name, long hits, long misses) {
+        final long total = hits + misses;
+        builder.append(name).append(": hits=").append(hits).append(" misses=").append(misses);
+        if (total > 0)
+            builder.append(" hit rate=").append(String.format(Locale.US, "%.1f%%",
+                    hits * 100.0 / total));
+        builder.append('\n');
+    }
+
+    /**
+     * 开始定期输出
+     * 每隔一段时间将 {@link #dump()} 的结果追加到文件，另含上次输出以来每分钟登录失败次数，
+     * 已开始时替换原有设置
+     *
+     * @param file     文件
+     * @param interval 间隔（毫秒）
+     */
+    public void startDump(final File file, long interval) {
+        if (interval <= 0)
+            throw new IllegalArgumentException("Invalid interval: " + interval);
+        final ScheduledExecutorService dumper =
+                Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        final Thread thread = new Thread(r, "FTPMetrics");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        dumper.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    write(file, true);
+                } catch (IOException e) {
+                    // 下次重试
+                }
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+        final ScheduledExecutorService old;
+        synchronized (mDumpLock) {
+            old = mDumper;
+            mDumper = dumper;
+            mLastDumpTime = 0;
+        }
+        if (old != null)
+            old.shutdown();
+    }
+
+    /**
+     * 停止定期输出
+     */
+    public void stopDump() {
+        final ScheduledExecutorService old;
+        synchronized (mDumpLock) {
+            old = mDumper;
+            mDumper = null;
+        }
+        if (old != null)
+            old.shutdown();
+    }
+
+    /**
+     * 将当前指标追加到文件
+     *
+     * @param file 文件
+     * @throws IOException 异常
+     */
+    public void write(File file) throws IOException {
+        write(file, false);
+    }
+
+    private void write(File file, boolean periodic) throws IOException {
+        final byte[] content = (dump(periodic) + '\n').getBytes(UTF_8);
+        final OutputStream output = new FileOutputStream(file, true);
+        try {
+            output.write(content);
+        } finally {
+            output.close();
+        }
+    }
+}
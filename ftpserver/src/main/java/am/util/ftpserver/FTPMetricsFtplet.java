@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2017 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.ftpserver;
+
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpReply;
+import org.apache.ftpserver.ftplet.FtpRequest;
+import org.apache.ftpserver.ftplet.FtpSession;
+import org.apache.ftpserver.ftplet.Ftplet;
+import org.apache.ftpserver.ftplet.FtpletContext;
+import org.apache.ftpserver.ftplet.FtpletResult;
+
+import java.io.IOException;
+
+/**
+ * FTP运行指标记录
+ * 记录会话数、登录结果及各命令耗时到 {@link FTPMetrics}；
+ * 每个会话连接时创建一个计时数组，此后每条命令只读写该数组，不再分配对象。
+ * Created by Alex on 2026/10/17.
+ */
+@SuppressWarnings("all")
+public class FTPMetricsFtplet implements Ftplet {
+
+    private static final String ATTRIBUTE_START = "am.util.ftpserver.metrics.start";
+    private static final int REPLY_230_USER_LOGGED_IN = 230;
+    private static final int REPLY_530_NOT_LOGGED_IN = 530;
+    private final FTPMetrics mMetrics;
+
+    public FTPMetricsFtplet() {
+        this(FTPMetrics.getInstance());
+    }
+
+    public FTPMetricsFtplet(FTPMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    public FTPMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    @Override
+    public void init(FtpletContext ftpletContext) throws FtpException {
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    @Override
+    public FtpletResult beforeCommand(FtpSession session, FtpRequest request)
+            throws FtpException, IOException {
+        final Object start = session.getAttribute(ATTRIBUTE_START);
+        if (start instanceof long[])
+            ((long[]) start)[0] = System.nanoTime();
+        return FtpletResult.DEFAULT;
+    }
+
+    @Override
+    public FtpletResult afterCommand(FtpSession session, FtpRequest request, FtpReply reply)
+            throws FtpException, IOException {
+        final Object start = session.getAttribute(ATTRIBUTE_START);
+        final String command = request.getCommand();
+        if (start instanceof long[])
+            mMetrics.recordCommand(command, System.nanoTime() - ((long[]) start)[0]);
+        if ("PASS".equals(command) && reply != null) {
+            if (reply.getCode() == REPLY_230_USER_LOGGED_IN)
+                mMetrics.onLogin(true);
+            else if (reply.getCode() == REPLY_530_NOT_LOGGED_IN)
+                mMetrics.onLogin(false);
+        }
+        return FtpletResult.DEFAULT;
+    }
+
+    @Override
+    public FtpletResult onConnect(FtpSession session) throws FtpException, IOException {
+        session.setAttribute(ATTRIBUTE_START, new long[1]);
+        mMetrics.onConnect();
+        return FtpletResult.DEFAULT;
+    }
+
+    @Override
+    public FtpletResult onDisconnect(FtpSession session) throws FtpException, IOException {
+        mMetrics.onDisconnect();
+        return FtpletResult.DEFAULT;
+    }
+}
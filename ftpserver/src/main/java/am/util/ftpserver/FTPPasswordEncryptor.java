@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2017 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.ftpserver;
+
+import org.apache.ftpserver.usermanager.PasswordEncryptor;
+
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * FTP密码加密器
+ * {@link #encrypt(String)} 生成加盐的 PBKDF2 摘要，格式为 pbkdf2:迭代次数:盐:摘要（十六进制），可作为 {@link FTPUser} 的密码保存；
+ * 校验时按保存的格式选择：摘要格式重新计算后比较，其他按明文比较；比较耗时与内容无关，不会因比较提前结束泄露信息。
+ * Created by Alex on 2026/10/17.
+ */
+@SuppressWarnings("all")
+public class FTPPasswordEncryptor implements PasswordEncryptor {
+
+    public static final int ITERATIONS_DEFAULT = 10000;
+    private static final String PREFIX = "pbkdf2:";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA1";
+    private static final int SALT_LENGTH = 16;
+    private static final int KEY_LENGTH = 160;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+    private final SecureRandom mRandom = new SecureRandom();
+    private final int mIterations;
+
+    public FTPPasswordEncryptor() {
+        this(ITERATIONS_DEFAULT);
+    }
+
+    /**
+     * 构造
+     *
+     * @param iterations 生成摘要时的迭代次数，越大越难以破解，登录校验也越慢
+     */
+    public FTPPasswordEncryptor(int iterations) {
+        mIterations = Math.max(1, iterations);
+    }
+
+    /**
+     * 比较
+     * 耗时只与长度有关
+     *
+     * @param a 数据
+     * @param b 数据
+     * @return 是否相同
+     */
+    private static boolean isEqual(byte[] a, byte[] b) {
+        if (a.length != b.length)
+            return false;
+        int result = 0;
+        for (int i = 0; i < a.length; i++) {
+            result |= a[i] ^ b[i];
+        }
+        return result == 0;
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations) {
+        try {
+            final PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations,
+                    KEY_LENGTH);
+            try {
+                return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+            } finally {
+                spec.clearPassword();
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        final char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = DIGITS[(bytes[i] >> 4) & 0x0F];
+            hex[i * 2 + 1] = DIGITS[bytes[i] & 0x0F];
+        }
+        return new String(hex);
+    }
+
+    private static byte[] fromHex(String hex) {
+        if (hex.length() % 2 != 0)
+            return null;
+        final byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            final int high = Character.digit(hex.charAt(i * 2), 16);
+            final int low = Character.digit(hex.charAt(i * 2 + 1), 16);
+            if (high < 0 || low < 0)
+                return null;
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+
+    @Override
+    public String encrypt(String password) {
+        final byte[] salt = new byte[SALT_LENGTH];
+        mRandom.nextBytes(salt);
+        return PREFIX + mIterations + ":" + toHex(salt) + ":"
+                + toHex(derive(password, salt, mIterations));
+    }
+
+    @Override
+    public boolean matches(String passwordToCheck, String storedPassword) {
+        if (passwordToCheck == null || storedPassword == null)
+            return passwordToCheck == storedPassword;
+        if (!storedPassword.startsWith(PREFIX))
+            return isEqual(passwordToCheck.getBytes(UTF_8), storedPassword.getBytes(UTF_8));
+        final String[] parts = storedPassword.substring(PREFIX.length()).split(":");
+        if (parts.length != 3)
+            return false;
+        final int iterations;
+        try {
+            iterations = Integer.parseInt(parts[0]);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        final byte[] salt = fromHex(parts[1]);
+        final byte[] hash = fromHex(parts[2]);
+        if (iterations <= 0 || salt == null || hash == null)
+            return false;
+        return isEqual(derive(passwordToCheck, salt, iterations), hash);
+    }
+}
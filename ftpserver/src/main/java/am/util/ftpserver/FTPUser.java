@@ -48,7 +48,7 @@ public class FTPUser implements Parcelable {
             return new FTPUser[size];
         }
     };
-    private static final String USER_NAME_ANONYMOUS = "anonymous";
+    static final String USER_NAME_ANONYMOUS = "anonymous";
     private final String mName;
     private final String mPassword;
     private final String mHomeDirectory;
@@ -60,7 +60,9 @@ public class FTPUser implements Parcelable {
     private final int mMaxUploadRate;
     private final int mMaxConcurrentLogin;
     private final int mMaxConcurrentLoginPerIP;
+    private final int mStreamSize;
     private boolean mAnonymous = false;
+    private volatile User mUser;// 缓存的用户，不可修改
 
     private FTPUser(String name, String password, String homeDirectory, boolean admin) {
         this(name, password, homeDirectory, admin, true, 60,
@@ -72,6 +74,21 @@ public class FTPUser implements Parcelable {
                    boolean enable, int idleSec,
                    boolean hasWritePermission, int maxDownloadRate, int maxUploadRate,
                    int maxConcurrentLogin, int maxConcurrentLoginPerIP) {
+        this(name, password, homeDirectory, admin, enable, idleSec,
+                hasWritePermission, maxDownloadRate, maxUploadRate,
+                maxConcurrentLogin, maxConcurrentLoginPerIP, 0);
+    }
+
+    /**
+     * 构造
+     *
+     * @param streamSize 传输缓冲大小，小于等于0时使用 {@link FTPFile#DEFAULT_SIZE}，
+     *                   内存较小的设备或并发较多时可适当减小
+     */
+    public FTPUser(String name, String password, String homeDirectory, boolean admin,
+                   boolean enable, int idleSec,
+                   boolean hasWritePermission, int maxDownloadRate, int maxUploadRate,
+                   int maxConcurrentLogin, int maxConcurrentLoginPerIP, int streamSize) {
         mName = name;
         mPassword = password;
         mHomeDirectory = homeDirectory;
@@ -83,6 +100,7 @@ public class FTPUser implements Parcelable {
         mMaxUploadRate = maxUploadRate;
         mMaxConcurrentLogin = maxConcurrentLogin;
         mMaxConcurrentLoginPerIP = maxConcurrentLoginPerIP;
+        mStreamSize = streamSize;
     }
 
     protected FTPUser(Parcel in) {
@@ -97,6 +115,7 @@ public class FTPUser implements Parcelable {
         this.mMaxUploadRate = in.readInt();
         this.mMaxConcurrentLogin = in.readInt();
         this.mMaxConcurrentLoginPerIP = in.readInt();
+        this.mStreamSize = in.readInt();
         this.mAnonymous = in.readByte() != 0;
     }
 
@@ -118,7 +137,17 @@ public class FTPUser implements Parcelable {
         }
         return new FTPUser(name, password, homeDirectory, false,
                 enable, idleSec, hasWritePermission,
-                0, 0, 10, 10);
+                0, 0, 10, 10, getStreamSize(user));
+    }
+
+    /**
+     * 获取用户的传输缓冲大小
+     *
+     * @param user 用户
+     * @return 缓冲大小，未配置时为0
+     */
+    static int getStreamSize(User user) {
+        return user instanceof Account ? ((Account) user).mStreamSize : 0;
     }
 
     static FTPUser getAnonymous(String homeDirectory) {
@@ -144,8 +173,33 @@ public class FTPUser implements Parcelable {
         return mAnonymous;
     }
 
+    public int getStreamSize() {
+        return mStreamSize;
+    }
+
+    /**
+     * 获取缓存的用户
+     * 首次调用时创建，不可修改
+     *
+     * @return 用户
+     */
+    User getUser() {
+        User user = mUser;
+        if (user == null) {
+            final Account account = createAccount();
+            account.mFrozen = true;
+            user = account;
+            mUser = user;
+        }
+        return user;
+    }
+
     public User create() {
-        BaseUser user = new BaseUser();
+        return createAccount();
+    }
+
+    private Account createAccount() {
+        Account user = new Account(mStreamSize);
         user.setEnabled(mEnable);
         user.setHomeDirectory(mHomeDirectory);
         user.setMaxIdleTime(mIdleSec);
@@ -180,8 +234,62 @@ public class FTPUser implements Parcelable {
         dest.writeInt(this.mMaxUploadRate);
         dest.writeInt(this.mMaxConcurrentLogin);
         dest.writeInt(this.mMaxConcurrentLoginPerIP);
+        dest.writeInt(this.mStreamSize);
         dest.writeByte(this.mAnonymous ? (byte) 1 : (byte) 0);
     }
 
+    /**
+     * 携带传输缓冲大小的用户
+     */
+    private static class Account extends BaseUser {
+
+        private final int mStreamSize;
+        private boolean mFrozen;
+
+        Account(int streamSize) {
+            mStreamSize = streamSize;
+        }
+
+        private void checkFrozen() {
+            if (mFrozen)
+                throw new UnsupportedOperationException("User is immutable");
+        }
+
+        @Override
+        public void setName(String name) {
+            checkFrozen();
+            super.setName(name);
+        }
+
+        @Override
+        public void setPassword(String pass) {
+            checkFrozen();
+            super.setPassword(pass);
+        }
+
+        @Override
+        public void setMaxIdleTime(int idleSec) {
+            checkFrozen();
+            super.setMaxIdleTime(idleSec);
+        }
+
+        @Override
+        public void setEnabled(boolean enabled) {
+            checkFrozen();
+            super.setEnabled(enabled);
+        }
+
+        @Override
+        public void setHomeDirectory(String home) {
+            checkFrozen();
+            super.setHomeDirectory(home);
+        }
+
+        @Override
+        public void setAuthorities(List<Authority> authorities) {
+            checkFrozen();
+            super.setAuthorities(authorities);
+        }
+    }
 
 }
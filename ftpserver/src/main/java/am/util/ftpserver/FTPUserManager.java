@@ -16,115 +16,149 @@
 
 package am.util.ftpserver;
 
-import android.text.TextUtils;
-
 import org.apache.ftpserver.ftplet.Authentication;
 import org.apache.ftpserver.ftplet.AuthenticationFailedException;
 import org.apache.ftpserver.ftplet.FtpException;
 import org.apache.ftpserver.ftplet.User;
 import org.apache.ftpserver.ftplet.UserManager;
 import org.apache.ftpserver.usermanager.AnonymousAuthentication;
+import org.apache.ftpserver.usermanager.PasswordEncryptor;
 import org.apache.ftpserver.usermanager.UsernamePasswordAuthentication;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * FTP用户管理器
+ * 用户按名称索引，查找及登录校验不随用户数增加而变慢，返回的 {@link User} 为缓存的不可修改对象；
+ * 可在服务器运行时添加、更新或移除用户，已登录的会话不受影响，此后的登录使用新的用户信息。
+ * 密码由 {@link PasswordEncryptor} 校验，默认为 {@link FTPPasswordEncryptor}，
+ * 支持保存明文或其生成的加盐摘要。
  * Created by Alex on 2017/12/19.
  */
 @SuppressWarnings("all")
 public class FTPUserManager implements UserManager {
 
-    private final ArrayList<FTPUser> mUsers = new ArrayList<>();
+    private final ConcurrentHashMap<String, FTPUser> mUsers = new ConcurrentHashMap<>();
+    private volatile PasswordEncryptor mPasswordEncryptor = new FTPPasswordEncryptor();
 
     public FTPUserManager(boolean anonymousEnable, String anonymousHomeDirectory,
                           FTPUser... users) {
         if (anonymousEnable) {
-            mUsers.add(FTPUser.getAnonymous(anonymousHomeDirectory));
+            addUser(FTPUser.getAnonymous(anonymousHomeDirectory));
+        }
+        if (users != null) {
+            for (FTPUser user : users) {
+                mUsers.putIfAbsent(user.getName(), user);
+            }
         }
-        Collections.addAll(mUsers, users);
     }
 
     public FTPUserManager(boolean anonymousEnable, String anonymousHomeDirectory,
                           Collection<? extends FTPUser> users) {
         this(anonymousEnable, anonymousHomeDirectory);
-        if (users != null)
-            mUsers.addAll(users);
+        if (users != null) {
+            for (FTPUser user : users) {
+                mUsers.putIfAbsent(user.getName(), user);
+            }
+        }
+    }
+
+    /**
+     * 设置密码加密器
+     *
+     * @param encryptor 密码加密器
+     */
+    public void setPasswordEncryptor(PasswordEncryptor encryptor) {
+        mPasswordEncryptor = encryptor == null ? new FTPPasswordEncryptor() : encryptor;
+    }
+
+    /**
+     * 获取密码加密器
+     *
+     * @return 密码加密器
+     */
+    public PasswordEncryptor getPasswordEncryptor() {
+        return mPasswordEncryptor;
+    }
+
+    /**
+     * 添加或更新用户
+     * 同名用户将被替换
+     *
+     * @param user 用户
+     */
+    public void addUser(FTPUser user) {
+        mUsers.put(user.getName(), user);
+    }
+
+    /**
+     * 移除用户
+     *
+     * @param username 用户名
+     * @return 被移除的用户，不存在时为null
+     */
+    public FTPUser removeUser(String username) {
+        return mUsers.remove(username);
+    }
+
+    /**
+     * 获取用户
+     *
+     * @param username 用户名
+     * @return 用户，不存在时为null
+     */
+    public FTPUser getUser(String username) {
+        return mUsers.get(username);
     }
 
     @Override
     public User getUserByName(String username) throws FtpException {
-        for (FTPUser user : mUsers) {
-            if (username.equals(user.getName()))
-                return user.create();
-        }
-        return null;
+        final FTPUser user = mUsers.get(username);
+        return user == null ? null : user.getUser();
     }
 
     @Override
     public String[] getAllUserNames() throws FtpException {
-        final String[] users = new String[mUsers.size()];
-        int index = 0;
-        for (FTPUser user : mUsers) {
-            users[index] = user.getName();
-            index++;
-        }
-        return users;
+        return mUsers.keySet().toArray(new String[0]);
     }
 
     @Override
     public void delete(String username) throws FtpException {
-        for (FTPUser user : mUsers) {
-            if (username.equals(user.getName())) {
-                mUsers.remove(user);
-                return;
-            }
-        }
+        mUsers.remove(username);
     }
 
     @Override
     public void save(User user) throws FtpException {
-        mUsers.add(FTPUser.from(user));
+        addUser(FTPUser.from(user));
     }
 
     @Override
     public boolean doesExist(String username) throws FtpException {
-        for (FTPUser user : mUsers) {
-            if (username.equals(user.getName()))
-                return true;
-        }
-        return false;
+        return mUsers.containsKey(username);
     }
 
     @Override
     public User authenticate(Authentication authentication) throws AuthenticationFailedException {
         if (authentication instanceof AnonymousAuthentication) {
-            for (FTPUser user : mUsers) {
-                if (user.isAnonymous())
-                    return user.create();
-            }
+            final FTPUser user = mUsers.get(FTPUser.USER_NAME_ANONYMOUS);
+            if (user != null && user.isAnonymous())
+                return user.getUser();
             throw new AuthenticationFailedException();
         }
-        if (mUsers == null || mUsers.isEmpty())
-            throw new AuthenticationFailedException();
         if (authentication instanceof UsernamePasswordAuthentication) {
             UsernamePasswordAuthentication auth = (UsernamePasswordAuthentication) authentication;
             final String username = auth.getUsername();
-            final String password = auth.getPassword();
-            for (FTPUser user : mUsers) {
-                if (username.equals(user.getName()) &&
-                        TextUtils.equals(password, user.getPassword()))
-                    return user.create();
-            }
+            final FTPUser user = username == null ? null : mUsers.get(username);
+            if (user != null && mPasswordEncryptor.matches(auth.getPassword(), user.getPassword()))
+                return user.getUser();
         }
         throw new AuthenticationFailedException();
     }
 
     @Override
     public String getAdminName() throws FtpException {
-        for (FTPUser user : mUsers) {
+        for (FTPUser user : mUsers.values()) {
             if (user.isAdmin())
                 return user.getName();
         }
@@ -133,6 +167,7 @@ public class FTPUserManager implements UserManager {
 
     @Override
     public boolean isAdmin(String username) throws FtpException {
-        return username.equals(getAdminName());
+        final FTPUser user = username == null ? null : mUsers.get(username);
+        return user != null && user.isAdmin();
     }
 }
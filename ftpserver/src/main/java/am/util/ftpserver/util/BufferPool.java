@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2017 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.ftpserver.util;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 传输缓冲池
+ * 缓冲按 8KB、64KB、256KB、1MB 分级复用，借出时向上取整到所在级别，超过1MB按1MB借出；
+ * 空闲缓冲总量有上限，超出时归还的缓冲直接丢弃；
+ * 剩余堆内存不足或分配失败时逐级退回较小的缓冲，调用方需以实际长度为准。
+ * 内存紧张（onTrimMemory/onLowMemory）时可调用 {@link #clear()} 释放空闲缓冲。
+ * Created by Alex on 2026/10/17.
+ */
+@SuppressWarnings("all")
+public class BufferPool {
+
+    public static final long MAX_POOL_SIZE_DEFAULT = 4 * 1024 * 1024;
+    private static final int[] SIZES = {8 * 1024, 64 * 1024, 256 * 1024, 1024 * 1024};
+    private static final int PRESSURE_RATIO = 8;// 新分配的缓冲不超过剩余堆内存的1/8
+    private static volatile BufferPool POOL;
+    private final ConcurrentLinkedQueue<byte[]>[] mQueues =
+            new ConcurrentLinkedQueue[SIZES.length];
+    private final AtomicLong mPooled = new AtomicLong();
+    private final AtomicLong mHits = new AtomicLong();
+    private final AtomicLong mMisses = new AtomicLong();
+    private volatile long mMaxPoolSize;
+
+    public BufferPool() {
+        this(MAX_POOL_SIZE_DEFAULT);
+    }
+
+    /**
+     * 构造
+     *
+     * @param maxPoolSize 空闲缓冲总量上限（字节）
+     */
+    public BufferPool(long maxPoolSize) {
+        for (int i = 0; i < mQueues.length; i++) {
+            mQueues[i] = new ConcurrentLinkedQueue<>();
+        }
+        mMaxPoolSize = Math.max(0, maxPoolSize);
+    }
+
+    /**
+     * 获取共享缓冲池
+     *
+     * @return 缓冲池
+     */
+    public static BufferPool getInstance() {
+        BufferPool pool = POOL;
+        if (pool == null) {
+            synchronized (BufferPool.class) {
+                pool = POOL;
+                if (pool == null) {
+                    pool = new BufferPool();
+                    POOL = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    private static int getIndex(int size) {
+        for (int i = 0; i < SIZES.length; i++) {
+            if (size <= SIZES[i])
+                return i;
+        }
+        return SIZES.length - 1;
+    }
+
+    private static long getAvailableMemory() {
+        final Runtime runtime = Runtime.getRuntime();
+        return runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+    }
+
+    /**
+     * 借出缓冲
+     * 使用完毕后应调用 {@link #release(byte[])} 归还
+     *
+     * @param size 期望大小
+     * @return 缓冲，内存紧张时可能小于期望大小
+     */
+    public byte[] acquire(int size) {
+        final long available = getAvailableMemory();
+        for (int i = getIndex(size); ; i--) {
+            final byte[] buffer = mQueues[i].poll();
+            if (buffer != null) {
+                mPooled.addAndGet(-buffer.length);
+                mHits.incrementAndGet();
+                return buffer;
+            }
+            if (i > 0 && SIZES[i] > available / PRESSURE_RATIO)
+                continue;// 内存紧张，退到较小一级
+            try {
+                final byte[] created = new byte[SIZES[i]];
+                mMisses.incrementAndGet();
+                return created;
+            } catch (OutOfMemoryError e) {
+                if (i == 0)
+                    throw e;
+                clear();
+            }
+        }
+    }
+
+    /**
+     * 归还缓冲
+     * 归还后不可再使用该缓冲
+     *
+     * @param buffer 缓冲，非本缓冲池借出的大小将被丢弃
+     */
+    public void release(byte[] buffer) {
+        if (buffer == null)
+            return;
+        final int index = getIndex(buffer.length);
+        if (buffer.length != SIZES[index])
+            return;
+        final int length = buffer.length;
+        long pooled;
+        do {
+            pooled = mPooled.get();
+            if (pooled + length > mMaxPoolSize)
+                return;
+        } while (!mPooled.compareAndSet(pooled, pooled + length));
+        mQueues[index].offer(buffer);
+    }
+
+    /**
+     * 释放全部空闲缓冲
+     */
+    public void clear() {
+        for (ConcurrentLinkedQueue<byte[]> queue : mQueues) {
+            byte[] buffer;
+            while ((buffer = queue.poll()) != null) {
+                mPooled.addAndGet(-buffer.length);
+            }
+        }
+    }
+
+    /**
+     * 获取空闲缓冲总量
+     *
+     * @return 字节数
+     */
+    public long getPoolSize() {
+        return mPooled.get();
+    }
+
+    /**
+     * 获取命中次数
+     *
+     * @return 借出时复用空闲缓冲的次数
+     */
+    public long getHitCount() {
+        return mHits.get();
+    }
+
+    /**
+     * 获取未命中次数
+     *
+     * @return 借出时新分配缓冲的次数
+     */
+    public long getMissCount() {
+        return mMisses.get();
+    }
+
+    /**
+     * 设置空闲缓冲总量上限
+     *
+     * @param size 字节数，为0时不保留空闲缓冲
+     */
+    public void setMaxPoolSize(long size) {
+        mMaxPoolSize = Math.max(0, size);
+        if (mPooled.get() > mMaxPoolSize)
+            clear();
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright (C) 2017 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.ftpserver.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterOutputStream;
+import java.util.zip.ZipException;
+
+/**
+ * 压缩器池
+ * Deflater、Inflater 各自持有本地内存（Deflater 约256KB），逐次创建并等待回收代价较高，此处重置后复用；
+ * 空闲数量超出上限时归还的实例直接结束（end）。
+ * 由 {@link #deflate(InputStream, int, int)}、{@link #inflate(OutputStream, int)} 创建的流关闭时自动归还。
+ * Created by Alex on 2026/10/17.
+ */
+@SuppressWarnings("all")
+public class CompressorPool {
+
+    public static final int MAX_IDLE_DEFAULT = 8;
+    private static final int STREAM_BUFFER_SIZE = 8 * 1024;
+    private static volatile CompressorPool POOL;
+    private final ConcurrentLinkedQueue<Deflater> mDeflaters = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Inflater> mInflaters = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger mIdleDeflaters = new AtomicInteger();
+    private final AtomicInteger mIdleInflaters = new AtomicInteger();
+    private volatile int mMaxIdle;
+
+    public CompressorPool() {
+        this(MAX_IDLE_DEFAULT);
+    }
+
+    /**
+     * 构造
+     *
+     * @param maxIdle Deflater、Inflater 各自的空闲数量上限
+     */
+    public CompressorPool(int maxIdle) {
+        mMaxIdle = Math.max(0, maxIdle);
+    }
+
+    /**
+     * 获取共享压缩器池
+     *
+     * @return 压缩器池
+     */
+    public static CompressorPool getInstance() {
+        CompressorPool pool = POOL;
+        if (pool == null) {
+            synchronized (CompressorPool.class) {
+                pool = POOL;
+                if (pool == null) {
+                    pool = new CompressorPool();
+                    POOL = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * 借出 Deflater
+     * 使用完毕后应调用 {@link #release(Deflater)} 归还
+     *
+     * @param level 压缩级别
+     * @return Deflater，zlib 格式
+     */
+    public Deflater acquireDeflater(int level) {
+        final Deflater deflater = mDeflaters.poll();
+        if (deflater == null)
+            return new Deflater(level);
+        mIdleDeflaters.decrementAndGet();
+        deflater.setLevel(level);
+        return deflater;
+    }
+
+    /**
+     * 归还 Deflater
+     *
+     * @param deflater Deflater
+     */
+    public void release(Deflater deflater) {
+        if (deflater == null)
+            return;
+        try {
+            deflater.reset();
+        } catch (RuntimeException e) {
+            // 已被结束（如外部流关闭时结束了传入的实例），不能再使用
+            return;
+        }
+        if (mIdleDeflaters.incrementAndGet() > mMaxIdle) {
+            mIdleDeflaters.decrementAndGet();
+            deflater.end();
+            return;
+        }
+        mDeflaters.offer(deflater);
+    }
+
+    /**
+     * 借出 Inflater
+     * 使用完毕后应调用 {@link #release(Inflater)} 归还
+     *
+     * @return Inflater，zlib 格式
+     */
+    public Inflater acquireInflater() {
+        final Inflater inflater = mInflaters.poll();
+        if (inflater == null)
+            return new Inflater();
+        mIdleInflaters.decrementAndGet();
+        return inflater;
+    }
+
+    /**
+     * 归还 Inflater
+     *
+     * @param inflater Inflater
+     */
+    public void release(Inflater inflater) {
+        if (inflater == null)
+            return;
+        try {
+            inflater.reset();
+        } catch (RuntimeException e) {
+            // 已被结束（如外部流关闭时结束了传入的实例），不能再使用
+            return;
+        }
+        if (mIdleInflaters.incrementAndGet() > mMaxIdle) {
+            mIdleInflaters.decrementAndGet();
+            inflater.end();
+            return;
+        }
+        mInflaters.offer(inflater);
+    }
+
+    /**
+     * 创建压缩输入流
+     * 读出的是输入数据压缩后的 zlib 数据
+     *
+     * @param in    输入流
+     * @param level 压缩级别，{@link Deflater#NO_COMPRESSION} 时仅按存储块封装
+     * @param size  缓冲大小，小于等于0时使用默认大小
+     * @return 输入流
+     */
+    public InputStream deflate(InputStream in, int level, int size) {
+        return new PooledDeflaterInputStream(in, acquireDeflater(level),
+                size <= 0 ? STREAM_BUFFER_SIZE : size);
+    }
+
+    /**
+     * 创建解压输出流
+     * 写入 zlib 数据，解压后写入输出流
+     *
+     * @param out  输出流
+     * @param size 缓冲大小，小于等于0时使用默认大小
+     * @return 输出流
+     */
+    public OutputStream inflate(OutputStream out, int size) {
+        return new PooledInflaterOutputStream(out, acquireInflater(),
+                size <= 0 ? STREAM_BUFFER_SIZE : size);
+    }
+
+    /**
+     * 结束全部空闲实例
+     */
+    public void clear() {
+        Deflater deflater;
+        while ((deflater = mDeflaters.poll()) != null) {
+            mIdleDeflaters.decrementAndGet();
+            deflater.end();
+        }
+        Inflater inflater;
+        while ((inflater = mInflaters.poll()) != null) {
+            mIdleInflaters.decrementAndGet();
+            inflater.end();
+        }
+    }
+
+    /**
+     * 设置空闲数量上限
+     *
+     * @param maxIdle Deflater、Inflater 各自的空闲数量上限，为0时不保留空闲实例
+     */
+    public void setMaxIdle(int maxIdle) {
+        mMaxIdle = Math.max(0, maxIdle);
+        if (mIdleDeflaters.get() > mMaxIdle || mIdleInflaters.get() > mMaxIdle)
+            clear();
+    }
+
+    private class PooledDeflaterInputStream extends DeflaterInputStream {
+
+        private boolean mClosed;
+
+        PooledDeflaterInputStream(InputStream in, Deflater deflater, int size) {
+            super(in, deflater, size);
+        }
+
+        /**
+         * 关闭
+         * 不调用父类的关闭，Android 7.0 以下的实现会结束传入的 Deflater
+         *
+         * @throws IOException 异常
+         */
+        @Override
+        public synchronized void close() throws IOException {
+            if (mClosed)
+                return;
+            mClosed = true;
+            try {
+                in.close();
+            } finally {
+                in = null;
+                release(def);
+            }
+        }
+    }
+
+    private class PooledInflaterOutputStream extends InflaterOutputStream {
+
+        private boolean mClosed;
+
+        PooledInflaterOutputStream(OutputStream out, Inflater inflater, int size) {
+            super(out, inflater, size);
+        }
+
+        /**
+         * 关闭
+         * finish() 不检查压缩流是否完整，传输中断时需在此报错，否则截断的文件会被当作上传成功；
+         * 不调用父类的关闭，Android 7.0 以下的实现会结束传入的 Inflater
+         *
+         * @throws IOException 压缩流不完整或关闭出错
+         */
+        @Override
+        public synchronized void close() throws IOException {
+            if (mClosed)
+                return;
+            mClosed = true;
+            IOException error = null;
+            try {
+                finish();
+                if (!inf.finished())
+                    error = new ZipException("Unexpected end of ZLIB input stream");
+            } catch (IOException e) {
+                error = e;
+            }
+            try {
+                out.close();
+            } catch (IOException e) {
+                if (error == null)
+                    error = e;
+            } finally {
+                release(inf);
+            }
+            if (error != null)
+                throw error;
+        }
+    }
+}
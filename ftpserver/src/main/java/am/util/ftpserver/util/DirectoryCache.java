@@ -0,0 +1,353 @@
+/*
+ * Copyright (C) 2017 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.ftpserver.util;
+
+import android.os.FileObserver;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * 目录列表缓存
+ * 按目录缓存 {@link FileAttributes#list(File)} 的结果，目录数及文件总数超出上限时移除最近最少使用的目录；
+ * 以下情况缓存失效，下次列出时重新读取：
+ * 目录修改时间变化（增删、重命名子文件）；
+ * 本服务修改了目录内容，由修改方调用 {@link #invalidate(File)}；
+ * 目录监听（FileObserver）收到子文件写入、属性变化等事件，用于发现其他应用的修改。
+ * 每个缓存的目录占用一个监听，移除时停止监听。
+ * 另为每个目录维护名称索引（见 {@link #contains(File, String)}），首次使用时读取一次目录，
+ * 此后由目录监听事件及 {@link #onCreated(File)}、{@link #onDeleted(File)} 增量更新，目录内容变化时无需重新读取。
+ * Created by Alex on 2026/10/17.
+ */
+@SuppressWarnings("all")
+public class DirectoryCache {
+
+    public static final int MAX_DIRECTORIES_DEFAULT = 32;
+    public static final int MAX_ENTRIES_DEFAULT = 64 * 1024;
+    private static final int EVENTS = FileObserver.MODIFY | FileObserver.ATTRIB
+            | FileObserver.CLOSE_WRITE | FileObserver.MOVED_FROM | FileObserver.MOVED_TO
+            | FileObserver.CREATE | FileObserver.DELETE | FileObserver.DELETE_SELF
+            | FileObserver.MOVE_SELF;
+    private static final int EVENT_Q_OVERFLOW = 0x4000;// 事件队列溢出，可能丢失事件
+    private static final int EVENT_IGNORED = 0x8000;// 监听已被系统移除
+    private static volatile DirectoryCache CACHE;
+    private final LinkedHashMap<String, Entry> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private int mMaxDirectories = MAX_DIRECTORIES_DEFAULT;
+    private int mMaxEntries = MAX_ENTRIES_DEFAULT;
+    private int mCount;// 已缓存的文件及名称总数
+    private long mHits;
+    private long mMisses;
+
+    /**
+     * 获取共享缓存
+     *
+     * @return 缓存
+     */
+    public static DirectoryCache getInstance() {
+        DirectoryCache cache = CACHE;
+        if (cache == null) {
+            synchronized (DirectoryCache.class) {
+                cache = CACHE;
+                if (cache == null) {
+                    cache = new DirectoryCache();
+                    CACHE = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * 列出目录下全部文件的属性
+     *
+     * @param directory 目录
+     * @return 属性快照，与缓存共享，不可修改
+     */
+    public FileAttributes[] list(File directory) {
+        final long modified = directory.lastModified();
+        if (modified == 0)
+            return FileAttributes.list(directory);// 不存在或无法读取
+        final String path = directory.getAbsolutePath();
+        final Entry entry;
+        final int version;
+        synchronized (this) {
+            if (isDisabled())
+                return FileAttributes.list(directory);
+            entry = obtain(path);
+            if (entry.mChildren != null && entry.mModified == modified) {
+                mHits++;
+                return entry.mChildren;
+            }
+            mMisses++;
+            version = entry.mVersion;
+        }
+        final FileAttributes[] children = FileAttributes.list(directory);
+        synchronized (this) {
+            if (entry.mVersion == version && mEntries.get(path) == entry) {
+                if (entry.mChildren != null)
+                    mCount -= entry.mChildren.length;
+                entry.mChildren = children;
+                entry.mModified = modified;
+                mCount += children.length;
+            }
+            trim();
+        }
+        return children;
+    }
+
+    /**
+     * 目录中是否存在该名称的文件
+     * 仅比较名称，不读取文件属性
+     *
+     * @param directory 目录
+     * @param name      名称
+     * @return 是否存在
+     */
+    public boolean contains(File directory, String name) {
+        final String path = directory.getAbsolutePath();
+        final Entry entry;
+        final int version;
+        synchronized (this) {
+            final Entry cached = isDisabled() ? null : mEntries.get(path);
+            if (cached != null && cached.mNames != null)
+                return cached.mNames.contains(name);
+            if (cached == null && (isDisabled() || !directory.isDirectory()))
+                return contains(directory.list(), name);
+            entry = cached == null ? obtain(path) : cached;
+            version = entry.mNamesVersion;
+        }
+        final String[] names = directory.list();
+        if (names == null)
+            return false;
+        final HashSet<String> set = new HashSet<>(Math.max(16, names.length * 4 / 3 + 1));
+        for (String item : names) {
+            set.add(item);
+        }
+        synchronized (this) {
+            if (entry.mNamesVersion == version && entry.mNames == null
+                    && mEntries.get(path) == entry) {
+                entry.mNames = set;
+                mCount += set.size();
+            }
+            trim();
+        }
+        return set.contains(name);
+    }
+
+    private static boolean contains(String[] names, String name) {
+        if (names == null)
+            return false;
+        for (String item : names) {
+            if (name.equals(item))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * 文件已创建
+     * 本服务在目录中创建文件、目录或移入文件后调用
+     *
+     * @param file 文件
+     */
+    public void onCreated(File file) {
+        final File parent = file.getParentFile();
+        if (parent != null)
+            onChanged(parent.getAbsolutePath(), file.getName(), true);
+    }
+
+    /**
+     * 文件已删除
+     * 本服务删除或移出文件后调用
+     *
+     * @param file 文件
+     */
+    public void onDeleted(File file) {
+        final File parent = file.getParentFile();
+        if (parent != null)
+            onChanged(parent.getAbsolutePath(), file.getName(), false);
+        invalidate(file);
+    }
+
+    private synchronized void onChanged(String path, String name, boolean created) {
+        final Entry entry = mEntries.get(path);
+        if (entry == null)
+            return;
+        invalidate(path);
+        entry.mNamesVersion++;
+        if (entry.mNames == null || name == null)
+            return;
+        if (created) {
+            if (entry.mNames.add(name))
+                mCount++;
+        } else {
+            if (entry.mNames.remove(name))
+                mCount--;
+        }
+    }
+
+    private boolean isDisabled() {
+        return mMaxDirectories <= 0 || mMaxEntries <= 0;
+    }
+
+    private Entry obtain(String path) {
+        Entry entry = mEntries.get(path);
+        if (entry == null) {
+            // 先开始监听再读取，读取期间的变化也能被发现
+            entry = new Entry(path);
+            mEntries.put(path, entry);
+            entry.startWatching();
+        }
+        return entry;
+    }
+
+    /**
+     * 使目录缓存失效
+     * 在目录中创建、删除、移动或写入文件后调用
+     *
+     * @param directory 目录
+     */
+    public void invalidate(File directory) {
+        if (directory != null)
+            invalidate(directory.getAbsolutePath());
+    }
+
+    private synchronized void invalidate(String path) {
+        final Entry entry = mEntries.get(path);
+        if (entry == null)
+            return;
+        entry.mVersion++;
+        if (entry.mChildren != null) {
+            mCount -= entry.mChildren.length;
+            entry.mChildren = null;
+        }
+    }
+
+    private synchronized void remove(String path, Entry entry) {
+        if (mEntries.get(path) != entry)
+            return;
+        mEntries.remove(path);
+        release(entry);
+    }
+
+    private void release(Entry entry) {
+        entry.mVersion++;
+        if (entry.mChildren != null) {
+            mCount -= entry.mChildren.length;
+            entry.mChildren = null;
+        }
+        dropNames(entry);
+        entry.stopWatching();
+    }
+
+    private synchronized void dropNames(Entry entry) {
+        entry.mNamesVersion++;
+        if (entry.mNames != null) {
+            mCount -= entry.mNames.size();
+            entry.mNames = null;
+        }
+    }
+
+    private void trim() {
+        final Iterator<Entry> iterator = mEntries.values().iterator();
+        while (iterator.hasNext()
+                && (mEntries.size() > mMaxDirectories || mCount > mMaxEntries)) {
+            final Entry entry = iterator.next();
+            iterator.remove();
+            release(entry);
+        }
+    }
+
+    /**
+     * 获取列表命中次数
+     *
+     * @return {@link #list(File)} 直接返回缓存的次数
+     */
+    public synchronized long getHitCount() {
+        return mHits;
+    }
+
+    /**
+     * 获取列表未命中次数
+     *
+     * @return {@link #list(File)} 重新读取目录的次数（不含未缓存的情况）
+     */
+    public synchronized long getMissCount() {
+        return mMisses;
+    }
+
+    /**
+     * 清空缓存并停止全部监听
+     */
+    public synchronized void clear() {
+        for (Entry entry : mEntries.values()) {
+            release(entry);
+        }
+        mEntries.clear();
+        mCount = 0;
+    }
+
+    /**
+     * 设置缓存上限
+     *
+     * @param directories 目录数，小于等于0时不缓存
+     * @param entries     文件总数，小于等于0时不缓存
+     */
+    public synchronized void setMaxSize(int directories, int entries) {
+        mMaxDirectories = directories;
+        mMaxEntries = entries;
+        if (directories <= 0 || entries <= 0)
+            clear();
+        else
+            trim();
+    }
+
+    private class Entry extends FileObserver {
+
+        private final String mPath;
+        private FileAttributes[] mChildren;
+        private long mModified;
+        private int mVersion;
+        private HashSet<String> mNames;
+        private int mNamesVersion;
+
+        Entry(String path) {
+            super(path, EVENTS);
+            mPath = path;
+        }
+
+        @Override
+        public void onEvent(int event, String path) {
+            if ((event & (FileObserver.DELETE_SELF | FileObserver.MOVE_SELF
+                    | EVENT_IGNORED)) != 0) {
+                // 目录本身已删除或移动，监听失效
+                remove(mPath, this);
+            } else if ((event & EVENT_Q_OVERFLOW) != 0) {
+                invalidate(mPath);
+                dropNames(this);
+            } else if ((event & (FileObserver.CREATE | FileObserver.MOVED_TO)) != 0) {
+                onChanged(mPath, path, true);
+            } else if ((event & (FileObserver.DELETE | FileObserver.MOVED_FROM)) != 0) {
+                onChanged(mPath, path, false);
+            } else {
+                invalidate(mPath);
+            }
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2017 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.ftpserver.util;
+
+import android.os.Build;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+
+/**
+ * 文件属性快照
+ * 一次读取文件的全部属性，创建后不可修改；
+ * Android 8.0 及以上使用 NIO readAttributes 一次获取类型、大小及修改时间，以下版本逐项读取。
+ * Created by Alex on 2026/10/17.
+ */
+@SuppressWarnings("all")
+public class FileAttributes {
+
+    private static final FileAttributes[] EMPTY = new FileAttributes[0];
+    private final File mFile;
+    private final boolean mExists;
+    private final boolean mDirectory;
+    private final boolean mRegularFile;
+    private final long mSize;
+    private final long mLastModified;
+    private final boolean mReadable;
+    private final boolean mWritable;
+    private final boolean mHidden;
+
+    private FileAttributes(File file, boolean exists, boolean directory, boolean regularFile,
+                           long size, long lastModified, boolean readable, boolean writable) {
+        mFile = file;
+        mExists = exists;
+        mDirectory = directory;
+        mRegularFile = regularFile;
+        mSize = size;
+        mLastModified = lastModified;
+        mReadable = readable;
+        mWritable = writable;
+        mHidden = file.getName().startsWith(".");
+    }
+
+    /**
+     * 读取文件属性
+     *
+     * @param file 文件
+     * @return 属性快照
+     */
+    public static FileAttributes read(File file) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            try {
+                return Api26.read(file.toPath(), file);
+            } catch (NoSuchFileException e) {
+                return new FileAttributes(file, false, false, false, 0, 0, false, false);
+            } catch (IOException e) {
+                // 无法读取时逐项读取
+            }
+        }
+        final boolean directory = file.isDirectory();
+        final long lastModified = file.lastModified();
+        final boolean exists = directory || lastModified != 0 || file.exists();
+        if (!exists)
+            return new FileAttributes(file, false, false, false, 0, 0, false, false);
+        return new FileAttributes(file, true, directory, !directory && file.isFile(),
+                file.length(), lastModified, file.canRead(), file.canWrite());
+    }
+
+    /**
+     * 读取目录下全部文件的属性
+     *
+     * @param directory 目录
+     * @return 属性快照，目录不存在或无法读取时为空数组
+     */
+    public static FileAttributes[] list(File directory) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            try {
+                return Api26.list(directory);
+            } catch (IOException e) {
+                // 无法读取时逐项读取
+            }
+        }
+        final File[] children = directory.listFiles();
+        if (children == null || children.length == 0)
+            return EMPTY;
+        final FileAttributes[] attributes = new FileAttributes[children.length];
+        for (int i = 0; i < children.length; i++) {
+            attributes[i] = read(children[i]);
+        }
+        return attributes;
+    }
+
+    /**
+     * 是否为符号链接
+     * 链接目标不存在时 {@link File#exists()} 返回false，但链接本身存在；Android 8.0 以下始终返回false
+     *
+     * @param file 文件
+     * @return 是否为符号链接
+     */
+    public static boolean isSymbolicLink(File file) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O)
+            return Api26.isSymbolicLink(file);
+        return false;
+    }
+
+    public File getFile() {
+        return mFile;
+    }
+
+    public String getName() {
+        return mFile.getName();
+    }
+
+    public boolean exists() {
+        return mExists;
+    }
+
+    public boolean isDirectory() {
+        return mDirectory;
+    }
+
+    public boolean isFile() {
+        return mRegularFile;
+    }
+
+    public long getSize() {
+        return mSize;
+    }
+
+    public long getLastModified() {
+        return mLastModified;
+    }
+
+    public boolean isReadable() {
+        return mReadable;
+    }
+
+    public boolean isWritable() {
+        return mWritable;
+    }
+
+    public boolean isHidden() {
+        return mHidden;
+    }
+
+    /**
+     * Android 8.0 及以上
+     */
+    private static class Api26 {
+
+        static FileAttributes read(Path path, File file) throws IOException {
+            final BasicFileAttributes attributes =
+                    Files.readAttributes(path, BasicFileAttributes.class);
+            return new FileAttributes(file, true, attributes.isDirectory(),
+                    attributes.isRegularFile(), attributes.size(),
+                    attributes.lastModifiedTime().toMillis(), file.canRead(), file.canWrite());
+        }
+
+        static boolean isSymbolicLink(File file) {
+            return Files.isSymbolicLink(file.toPath());
+        }
+
+        static FileAttributes[] list(File directory) throws IOException {
+            final ArrayList<FileAttributes> list = new ArrayList<>();
+            final DirectoryStream<Path> stream = Files.newDirectoryStream(directory.toPath());
+            try {
+                for (Path path : stream) {
+                    final File file = new File(directory, path.getFileName().toString());
+                    try {
+                        list.add(read(path, file));
+                    } catch (NoSuchFileException e) {
+                        // 已被删除
+                    }
+                }
+            } finally {
+                stream.close();
+            }
+            return list.toArray(EMPTY);
+        }
+    }
+}
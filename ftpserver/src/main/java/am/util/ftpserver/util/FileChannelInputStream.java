@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2017 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.ftpserver.util;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * 基于FileChannel按位置读取的输入流
+ * 从指定位置开始按位置读取，无需skip；
+ * 继承BufferedInputStream，FtpServer传输时不会再包装一层缓冲，读取大于缓冲区的数据时直接读入调用方数组；
+ * 目标为通道时可通过 {@link #transferTo(WritableByteChannel)} 由系统直接传输。
+ * 可指定 {@link BufferPool}，缓冲从缓冲池借出，关闭时归还。
+ * 不支持mark/reset。
+ * Created by Alex on 2026/10/17.
+ */
+@SuppressWarnings("all")
+public class FileChannelInputStream extends BufferedInputStream {
+
+    private final FileChannel mChannel;
+    private final BufferPool mPool;
+    private long mPosition;// 下一次从通道读取的位置
+
+    public FileChannelInputStream(File file, long offset, int size) throws IOException {
+        this(file, offset, size, null);
+    }
+
+    /**
+     * 构造
+     *
+     * @param file   文件
+     * @param offset 起始位置
+     * @param size   缓冲大小
+     * @param pool   缓冲池，为null时不使用缓冲池
+     * @throws IOException 异常
+     */
+    public FileChannelInputStream(File file, long offset, int size, BufferPool pool)
+            throws IOException {
+        this(new FileInputStream(file), offset, size, pool);
+    }
+
+    private FileChannelInputStream(FileInputStream input, long offset, int size,
+                                   BufferPool pool) {
+        super(input, pool == null ? size : 1);
+        mChannel = input.getChannel();
+        mPool = pool;
+        mPosition = offset < 0 ? 0 : offset;
+        if (pool != null)
+            buf = pool.acquire(size);
+    }
+
+    private byte[] getBuffer() throws IOException {
+        final byte[] buffer = buf;
+        if (buffer == null)
+            throw new IOException("Stream closed");
+        return buffer;
+    }
+
+    private int fill() throws IOException {
+        final byte[] buffer = getBuffer();
+        pos = 0;
+        count = 0;
+        final int read = mChannel.read(ByteBuffer.wrap(buffer), mPosition);
+        if (read > 0) {
+            count = read;
+            mPosition += read;
+        }
+        return read;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (pos >= count && fill() <= 0)
+            return -1;
+        return getBuffer()[pos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if ((off | len | (off + len) | (b.length - (off + len))) < 0)
+            throw new IndexOutOfBoundsException();
+        if (len == 0)
+            return 0;
+        final byte[] buffer = getBuffer();
+        int available = count - pos;
+        if (available <= 0) {
+            if (len >= buffer.length) {
+                // 直接读入调用方数组
+                final int read = mChannel.read(ByteBuffer.wrap(b, off, len), mPosition);
+                if (read > 0)
+                    mPosition += read;
+                return read;
+            }
+            if (fill() <= 0)
+                return -1;
+            available = count;
+        }
+        final int read = Math.min(available, len);
+        System.arraycopy(buffer, pos, b, off, read);
+        pos += read;
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        getBuffer();
+        if (n <= 0)
+            return 0;
+        final long available = count - pos;
+        if (available > 0) {
+            final long skipped = Math.min(available, n);
+            pos += skipped;
+            return skipped;
+        }
+        final long skipped = Math.max(0, Math.min(n, mChannel.size() - mPosition));
+        mPosition += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        getBuffer();
+        final long available = (count - pos) + Math.max(0, mChannel.size() - mPosition);
+        return available > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) available;
+    }
+
+    @Override
+    public void mark(int readlimit) {
+    }
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        final byte[] buffer = buf;
+        try {
+            super.close();
+        } finally {
+            if (mPool != null && buffer != null && buf == null)
+                mPool.release(buffer);
+        }
+    }
+
+    /**
+     * 获取当前读取位置
+     *
+     * @return 位置
+     */
+    public long getPosition() {
+        return mPosition - Math.max(0, count - pos);
+    }
+
+    /**
+     * 获取文件通道
+     *
+     * @return 文件通道
+     */
+    public FileChannel getChannel() {
+        return mChannel;
+    }
+
+    /**
+     * 将剩余数据全部传输到目标通道
+     * 由FileChannel.transferTo完成，目标为SocketChannel或FileChannel时系统可直接传输，不经过Java堆
+     *
+     * @param target 目标通道
+     * @return 传输的字节数
+     * @throws IOException 异常
+     */
+    public long transferTo(WritableByteChannel target) throws IOException {
+        final byte[] buffer = getBuffer();
+        long transferred = 0;
+        if (count - pos > 0) {
+            final ByteBuffer remaining = ByteBuffer.wrap(buffer, pos, count - pos);
+            while (remaining.hasRemaining()) {
+                target.write(remaining);
+            }
+            transferred += count - pos;
+            pos = count;
+        }
+        final long size = mChannel.size();
+        while (mPosition < size) {
+            final long count = mChannel.transferTo(mPosition, size - mPosition, target);
+            if (count <= 0)
+                break;
+            mPosition += count;
+            transferred += count;
+        }
+        return transferred;
+    }
+
+    /**
+     * 将剩余数据全部写入输出流
+     * 输出流为FileOutputStream时使用其通道直接传输
+     *
+     * @param output 输出流
+     * @return 传输的字节数
+     * @throws IOException 异常
+     */
+    public long transferTo(OutputStream output) throws IOException {
+        if (output instanceof FileOutputStream)
+            return transferTo(((FileOutputStream) output).getChannel());
+        if (output instanceof RandomAccessFileOutputStream)
+            return transferTo(((RandomAccessFileOutputStream) output).getChannel());
+        return transferTo(Channels.newChannel(output));
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2017 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.ftpserver.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * 文件摘要
+ * 通过 FileChannel 按位置分块读取计算，缓冲从 {@link BufferPool} 借出；
+ * 结果按路径、大小、修改时间、算法及区间缓存，文件未变化时重复校验无需再次读取。
+ * 支持 MD5、SHA-1、SHA-256、SHA-512 及 CRC32。
+ * Created by Alex on 2026/10/17.
+ */
+@SuppressWarnings("all")
+public class FileDigest {
+
+    public static final String MD5 = "MD5";
+    public static final String SHA_1 = "SHA-1";
+    public static final String SHA_256 = "SHA-256";
+    public static final String SHA_512 = "SHA-512";
+    public static final String CRC_32 = "CRC32";
+    public static final int CACHE_SIZE = 256;
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+    private static final LinkedHashMap<String, String> CACHE =
+            new LinkedHashMap<String, String>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            };
+
+    private FileDigest() {
+        //no instance
+    }
+
+    /**
+     * 是否支持该算法
+     *
+     * @param algorithm 算法
+     * @return 是否支持
+     */
+    public static boolean isSupported(String algorithm) {
+        return MD5.equals(algorithm) || SHA_1.equals(algorithm) || SHA_256.equals(algorithm)
+                || SHA_512.equals(algorithm) || CRC_32.equals(algorithm);
+    }
+
+    /**
+     * 计算文件摘要
+     *
+     * @param file      文件
+     * @param algorithm 算法
+     * @param start     起始位置
+     * @param end       结束位置（不含），小于0时到文件末尾
+     * @return 十六进制摘要，CRC32为8位
+     * @throws IOException 异常
+     */
+    public static String digest(File file, String algorithm, long start, long end)
+            throws IOException {
+        if (!isSupported(algorithm))
+            throw new IllegalArgumentException("Unsupported algorithm: " + algorithm);
+        final FileInputStream input = new FileInputStream(file);
+        try {
+            final FileChannel channel = input.getChannel();
+            final long size = channel.size();
+            if (end < 0 || end > size)
+                end = size;
+            if (start < 0)
+                start = 0;
+            if (start > end)
+                start = end;
+            final String key = file.getAbsolutePath() + '\n' + size + '\n' + file.lastModified()
+                    + '\n' + algorithm + '\n' + start + '\n' + end;
+            synchronized (CACHE) {
+                final String cached = CACHE.get(key);
+                if (cached != null)
+                    return cached;
+            }
+            final String result = digest(channel, algorithm, start, end);
+            synchronized (CACHE) {
+                CACHE.put(key, result);
+            }
+            return result;
+        } finally {
+            input.close();
+        }
+    }
+
+    private static String digest(FileChannel channel, String algorithm, long start, long end)
+            throws IOException {
+        final MessageDigest digest;
+        final CRC32 crc;
+        if (CRC_32.equals(algorithm)) {
+            digest = null;
+            crc = new CRC32();
+        } else {
+            try {
+                digest = MessageDigest.getInstance(algorithm);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IOException(e);
+            }
+            crc = null;
+        }
+        final BufferPool pool = BufferPool.getInstance();
+        final byte[] array = pool.acquire(BUFFER_SIZE);
+        try {
+            final ByteBuffer buffer = ByteBuffer.wrap(array);
+            long position = start;
+            while (position < end) {
+                buffer.clear();
+                buffer.limit((int) Math.min(array.length, end - position));
+                final int read = channel.read(buffer, position);
+                if (read <= 0)
+                    break;
+                if (digest != null)
+                    digest.update(array, 0, read);
+                else
+                    crc.update(array, 0, read);
+                position += read;
+            }
+        } finally {
+            pool.release(array);
+        }
+        if (digest != null)
+            return toHex(digest.digest());
+        final String value = Long.toHexString(crc.getValue());
+        return "00000000".substring(value.length()) + value;
+    }
+
+    private static String toHex(byte[] bytes) {
+        final char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = DIGITS[(bytes[i] >> 4) & 0x0F];
+            hex[i * 2 + 1] = DIGITS[bytes[i] & 0x0F];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * 清空缓存
+     */
+    public static void clearCache() {
+        synchronized (CACHE) {
+            CACHE.clear();
+        }
+    }
+}
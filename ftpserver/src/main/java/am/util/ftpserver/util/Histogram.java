@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2017 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.ftpserver.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 直方图
+ * 按2的幂分桶（第i个桶为 [2^(i-1), 2^i)，第0个桶为0），记录时只做原子自增，不分配对象，可在多线程中并发记录；
+ * 百分位按所在桶的上界估算，误差不超过一倍。
+ * Created by Alex on 2026/10/17.
+ */
+@SuppressWarnings("all")
+public class Histogram {
+
+    private static final int BUCKETS = 64;
+    private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong mCount = new AtomicLong();
+    private final AtomicLong mSum = new AtomicLong();
+    private final AtomicLong mMax = new AtomicLong();
+
+    /**
+     * 记录
+     *
+     * @param value 数值，小于0时按0记录
+     */
+    public void record(long value) {
+        if (value < 0)
+            value = 0;
+        mBuckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));// 非负数时为0-63
+        mCount.incrementAndGet();
+        mSum.addAndGet(value);
+        long max;
+        while (value > (max = mMax.get()) && !mMax.compareAndSet(max, value)) {
+            // 重试
+        }
+    }
+
+    public long getCount() {
+        return mCount.get();
+    }
+
+    public long getSum() {
+        return mSum.get();
+    }
+
+    public long getMax() {
+        return mMax.get();
+    }
+
+    /**
+     * 获取平均值
+     *
+     * @return 平均值，没有记录时为0
+     */
+    public long getMean() {
+        final long count = mCount.get();
+        return count == 0 ? 0 : mSum.get() / count;
+    }
+
+    /**
+     * 获取百分位
+     *
+     * @param percent 百分比，0-100
+     * @return 估算值（所在桶的上界，不超过最大值），没有记录时为0
+     */
+    public long getPercentile(double percent) {
+        long total = 0;
+        final long[] buckets = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = mBuckets.get(i);
+            total += buckets[i];
+        }
+        if (total == 0)
+            return 0;
+        final long rank = Math.max(1, (long) Math.ceil(total * Math.min(100, percent) / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                final long upper = i == 0 ? 0 : (i == 63 ? Long.MAX_VALUE : (1L << i) - 1);
+                return Math.min(upper, mMax.get());
+            }
+        }
+        return mMax.get();
+    }
+
+    /**
+     * 清空
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            mBuckets.set(i, 0);
+        }
+        mCount.set(0);
+        mSum.set(0);
+        mMax.set(0);
+    }
+}
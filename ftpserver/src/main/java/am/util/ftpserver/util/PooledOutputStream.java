@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2017 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.ftpserver.util;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 使用缓冲池的缓冲输出流
+ * 缓冲从 {@link BufferPool} 借出，关闭时归还，关闭后不可再写入。
+ * Created by Alex on 2026/10/17.
+ */
+@SuppressWarnings("all")
+public class PooledOutputStream extends BufferedOutputStream {
+
+    private final BufferPool mPool;
+
+    public PooledOutputStream(OutputStream out, int size, BufferPool pool) {
+        super(out, 1);
+        mPool = pool;
+        buf = pool.acquire(size);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (buf == null)
+            throw new IOException("Stream closed");
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+        ensureOpen();
+        super.write(b);
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        super.write(b, off, len);
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        ensureOpen();
+        super.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (buf == null)
+            return;
+        final byte[] buffer = buf;// Android 7.0 以下父类关闭时会将buf置空
+        try {
+            super.close();
+        } finally {
+            buf = null;
+            count = 0;
+            mPool.release(buffer);
+        }
+    }
+}
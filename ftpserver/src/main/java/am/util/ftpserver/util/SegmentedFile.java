@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2017 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.ftpserver.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 分段上传文件
+ * 同一文件的多个上传连接（REST + STOR）共用一个 FileChannel，各自按位置写入，互不影响文件指针；
+ * 写入的区间记录在分段表中，相邻区间自动合并。
+ * 没有进行中的上传时从0开始上传视为重新上传，清空文件及分段表；有进行中的上传时不清空，作为其中一段写入。
+ * 连接断开后未完成的分段表仍保留（最多 {@link #RETAINED_MAX} 个文件），可通过 {@link #getSegments(File)} 查询已写入的区间以续传。
+ * Created by Alex on 2026/10/17.
+ */
+@SuppressWarnings("all")
+public class SegmentedFile {
+
+    public static final int RETAINED_MAX = 64;
+    private static final HashMap<String, SegmentedFile> OPENED = new HashMap<>();
+    private static final LinkedHashMap<String, SegmentedFile> RETAINED =
+            new LinkedHashMap<>(16, 0.75f, true);
+    private final String mPath;
+    private final TreeMap<Long, Long> mSegments = new TreeMap<>();// 起始位置 -> 结束位置
+    private RandomAccessFile mRandomAccessFile;
+    private FileChannel mChannel;
+    private int mReferences;
+
+    private SegmentedFile(String path) {
+        mPath = path;
+    }
+
+    /**
+     * 打开上传流
+     *
+     * @param file   文件
+     * @param offset 起始位置
+     * @return 输出流，无缓冲，关闭时记录分段
+     * @throws IOException 异常
+     */
+    public static OutputStream open(File file, long offset) throws IOException {
+        final String path = file.getAbsolutePath();
+        final SegmentedFile segmented;
+        synchronized (OPENED) {
+            SegmentedFile opened = OPENED.get(path);
+            if (opened == null) {
+                final RandomAccessFile random = new RandomAccessFile(file, "rw");
+                opened = RETAINED.remove(path);
+                final boolean retained = opened != null;
+                if (opened == null)
+                    opened = new SegmentedFile(path);
+                opened.mRandomAccessFile = random;
+                opened.mChannel = random.getChannel();
+                if (offset > 0 && !retained) {
+                    // 普通续传，起始位置之前的数据视为已写入
+                    try {
+                        opened.addSegment(0, Math.min(offset, opened.mChannel.size()));
+                    } catch (IOException e) {
+                        opened.close();
+                        throw e;
+                    }
+                } else if (offset <= 0) {
+                    // 重新上传
+                    try {
+                        opened.mChannel.truncate(0);
+                    } catch (IOException e) {
+                        opened.close();
+                        throw e;
+                    }
+                    synchronized (opened) {
+                        opened.mSegments.clear();
+                    }
+                }
+                OPENED.put(path, opened);
+            }
+            opened.mReferences++;
+            segmented = opened;
+        }
+        return segmented.new Segment(Math.max(0, offset));
+    }
+
+    /**
+     * 获取已写入的区间
+     *
+     * @param file 文件
+     * @return 按起始位置排列的区间，依次为起始位置、结束位置（不含），没有记录时为null
+     */
+    public static long[] getSegments(File file) {
+        final String path = file.getAbsolutePath();
+        final SegmentedFile segmented;
+        synchronized (OPENED) {
+            SegmentedFile opened = OPENED.get(path);
+            if (opened == null)
+                opened = RETAINED.get(path);
+            segmented = opened;
+        }
+        return segmented == null ? null : segmented.getSegments();
+    }
+
+    /**
+     * 清除分段记录
+     * 文件被删除或移动后调用
+     *
+     * @param file 文件
+     */
+    public static void forget(File file) {
+        synchronized (OPENED) {
+            RETAINED.remove(file.getAbsolutePath());
+        }
+    }
+
+    private synchronized long[] getSegments() {
+        final long[] segments = new long[mSegments.size() * 2];
+        int index = 0;
+        for (Map.Entry<Long, Long> entry : mSegments.entrySet()) {
+            segments[index++] = entry.getKey();
+            segments[index++] = entry.getValue();
+        }
+        return segments;
+    }
+
+    private synchronized void addSegment(long start, long end) {
+        if (start >= end)
+            return;
+        final Map.Entry<Long, Long> floor = mSegments.floorEntry(start);
+        if (floor != null && floor.getValue() >= start) {
+            start = floor.getKey();
+            end = Math.max(end, floor.getValue());
+        }
+        Map.Entry<Long, Long> next = mSegments.ceilingEntry(start);
+        while (next != null && next.getKey() <= end) {
+            end = Math.max(end, next.getValue());
+            mSegments.remove(next.getKey());
+            next = mSegments.ceilingEntry(start);
+        }
+        mSegments.put(start, end);
+    }
+
+    private synchronized boolean isComplete(long size) {
+        if (mSegments.isEmpty())
+            return true;
+        if (mSegments.size() != 1)
+            return false;
+        final Map.Entry<Long, Long> entry = mSegments.firstEntry();
+        return entry.getKey() == 0 && entry.getValue() >= size;
+    }
+
+    private void write(ByteBuffer source, long position) throws IOException {
+        final long start = position;
+        try {
+            while (source.hasRemaining()) {
+                position += mChannel.write(source, position);
+            }
+        } finally {
+            addSegment(start, position);
+        }
+    }
+
+    private void release() throws IOException {
+        synchronized (OPENED) {
+            if (--mReferences > 0)
+                return;
+            OPENED.remove(mPath);
+            long size = 0;
+            try {
+                size = mChannel.size();
+            } finally {
+                close();
+                if (!isComplete(size)) {
+                    RETAINED.put(mPath, this);
+                    final Iterator<SegmentedFile> iterator = RETAINED.values().iterator();
+                    while (RETAINED.size() > RETAINED_MAX && iterator.hasNext()) {
+                        iterator.next();
+                        iterator.remove();
+                    }
+                }
+            }
+        }
+    }
+
+    private void close() throws IOException {
+        final RandomAccessFile random = mRandomAccessFile;
+        mRandomAccessFile = null;
+        mChannel = null;
+        if (random != null)
+            random.close();
+    }
+
+    private class Segment extends OutputStream {
+
+        private long mPosition;
+        private boolean mClosed;
+
+        Segment(long position) {
+            mPosition = position;
+        }
+
+        private void ensureOpen() throws IOException {
+            if (mClosed)
+                throw new IOException("Stream closed");
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            ensureOpen();
+            final ByteBuffer source = ByteBuffer.wrap(b, off, len);
+            try {
+                SegmentedFile.this.write(source, mPosition);
+            } finally {
+                mPosition += len - source.remaining();
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (mClosed)
+                return;
+            mClosed = true;
+            release();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2015 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.printer;
+
+import java.util.Arrays;
+
+/**
+ * 误差扩散抖动（Floyd–Steinberg、Atkinson）
+ * 逐行处理，仅保留两行整型误差缓存，本行向右扩散的误差由局部变量携带。
+ * Atkinson向下两行扩散的误差写回本行已消费的位置，交换缓存后即成为下一行的后一行。
+ * Created by Alex on 2026/10/17.
+ */
+@SuppressWarnings("all")
+public class ErrorDiffusionDitherer implements PrintDitherer {
+
+    public static final int FLOYD_STEINBERG = 0;
+    public static final int ATKINSON = 1;
+    private final int mType;
+    private int[] mCurrent;// 本行误差，下标偏移1
+    private int[] mNext;// 下一行误差，下标偏移1
+
+    public ErrorDiffusionDitherer() {
+        this(FLOYD_STEINBERG);
+    }
+
+    /**
+     * 构造
+     *
+     * @param type 类型 {@link #FLOYD_STEINBERG} 或 {@link #ATKINSON}
+     */
+    public ErrorDiffusionDitherer(int type) {
+        mType = type == ATKINSON ? ATKINSON : FLOYD_STEINBERG;
+    }
+
+    @Override
+    public void start(int width) {
+        final int size = width + 2;
+        if (mCurrent == null || mCurrent.length < size) {
+            mCurrent = new int[size];
+            mNext = new int[size];
+        } else {
+            Arrays.fill(mCurrent, 0);
+            Arrays.fill(mNext, 0);
+        }
+    }
+
+    @Override
+    public int ditherRow(int[] pixels, int width, int y, boolean hasAlpha,
+                         byte[] out, int offset) {
+        final int[] current = mCurrent;
+        final int[] next = mNext;
+        final boolean atkinson = mType == ATKINSON;
+        int carry1 = 0;// 扩散到右侧第一个像素
+        int carry2 = 0;// 扩散到右侧第二个像素（仅Atkinson）
+        int bits = 0;
+        for (int j = 0; j < width; j++) {
+            final int index = j + 1;
+            final int value = PrinterUtils.getGray(pixels[j], hasAlpha) + current[index] + carry1;
+            final boolean black = value < 128;
+            final int error = black ? value : value - 255;
+            if (black)
+                bits |= 0x80 >>> (j & 7);
+            if ((j & 7) == 7) {
+                out[offset++] = (byte) bits;
+                bits = 0;
+            }
+            if (atkinson) {
+                final int e = error >> 3;
+                carry1 = carry2 + e;
+                carry2 = e;
+                next[index - 1] += e;
+                next[index] += e;
+                next[index + 1] += e;
+                current[index] = e;// 后一行
+            } else {
+                final int e7 = (error * 7) >> 4;
+                final int e3 = (error * 3) >> 4;
+                final int e5 = (error * 5) >> 4;
+                carry1 = e7;
+                next[index - 1] += e3;
+                next[index] += e5;
+                next[index + 1] += error - e7 - e3 - e5;
+                current[index] = 0;
+            }
+        }
+        if ((width & 7) != 0)
+            out[offset++] = (byte) bits;
+        // 边界之外的误差直接丢弃
+        current[0] = 0;
+        current[width + 1] = 0;
+        next[0] = 0;
+        next[width + 1] = 0;
+        mCurrent = next;
+        mNext = current;
+        return offset;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ErrorDiffusionDitherer && ((ErrorDiffusionDitherer) o).mType == mType;
+    }
+
+    @Override
+    public int hashCode() {
+        return mType;
+    }
+}
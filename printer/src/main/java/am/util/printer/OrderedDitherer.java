@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2015 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.printer;
+
+/**
+ * 有序抖动（Bayer矩阵）
+ * 无状态，不需要误差缓存
+ * Created by Alex on 2026/10/17.
+ */
+@SuppressWarnings("all")
+public class OrderedDitherer implements PrintDitherer {
+
+    public static final int BAYER_4X4 = 4;
+    public static final int BAYER_8X8 = 8;
+    private static final int[] MATRIX_4 = {
+            0, 8, 2, 10,
+            12, 4, 14, 6,
+            3, 11, 1, 9,
+            15, 7, 13, 5};
+    private static final int[] MATRIX_8 = {
+            0, 32, 8, 40, 2, 34, 10, 42,
+            48, 16, 56, 24, 50, 18, 58, 26,
+            12, 44, 4, 36, 14, 46, 6, 38,
+            60, 28, 52, 20, 62, 30, 54, 22,
+            3, 35, 11, 43, 1, 33, 9, 41,
+            51, 19, 59, 27, 49, 17, 57, 25,
+            15, 47, 7, 39, 13, 45, 5, 37,
+            63, 31, 55, 23, 61, 29, 53, 21};
+    private final int mSize;
+    private final int mMask;
+    private final int[] mThresholds;
+
+    public OrderedDitherer() {
+        this(BAYER_8X8);
+    }
+
+    /**
+     * 构造
+     *
+     * @param size 矩阵大小 {@link #BAYER_4X4} 或 {@link #BAYER_8X8}
+     */
+    public OrderedDitherer(int size) {
+        final int[] matrix = size == BAYER_4X4 ? MATRIX_4 : MATRIX_8;
+        mSize = size == BAYER_4X4 ? BAYER_4X4 : BAYER_8X8;
+        mMask = mSize - 1;
+        mThresholds = new int[matrix.length];
+        for (int i = 0; i < matrix.length; i++) {
+            // 阈值均匀分布在0～255之间
+            mThresholds[i] = (matrix[i] * 2 + 1) * 256 / (matrix.length * 2);
+        }
+    }
+
+    @Override
+    public void start(int width) {
+    }
+
+    @Override
+    public int ditherRow(int[] pixels, int width, int y, boolean hasAlpha,
+                         byte[] out, int offset) {
+        final int[] thresholds = mThresholds;
+        final int row = (y & mMask) * mSize;
+        final int mask = mMask;
+        int bits = 0;
+        for (int j = 0; j < width; j++) {
+            if (PrinterUtils.getGray(pixels[j], hasAlpha) < thresholds[row + (j & mask)])
+                bits |= 0x80 >>> (j & 7);
+            if ((j & 7) == 7) {
+                out[offset++] = (byte) bits;
+                bits = 0;
+            }
+        }
+        if ((width & 7) != 0)
+            out[offset++] = (byte) bits;
+        return offset;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof OrderedDitherer && ((OrderedDitherer) o).mSize == mSize;
+    }
+
+    @Override
+    public int hashCode() {
+        return mSize;
+    }
+}
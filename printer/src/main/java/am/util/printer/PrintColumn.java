@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2015 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.printer;
+
+/**
+ * 表格列
+ * 宽度以半角字符计，全角字符占2
+ * Created by Alex on 2026/10/17.
+ */
+@SuppressWarnings("all")
+public class PrintColumn {
+
+    public static final int ALIGN_LEFT = 0;
+    public static final int ALIGN_CENTER = 1;
+    public static final int ALIGN_RIGHT = 2;
+    public static final int OVERFLOW_WRAP = 0;// 超出时换行
+    public static final int OVERFLOW_TRUNCATE = 1;// 超出时截断
+    private final int mWidth;
+    private final int mAlign;
+    private final int mOverflow;
+
+    public PrintColumn(int width) {
+        this(width, ALIGN_LEFT, OVERFLOW_WRAP);
+    }
+
+    public PrintColumn(int width, int align) {
+        this(width, align, OVERFLOW_WRAP);
+    }
+
+    /**
+     * 构造
+     *
+     * @param width    宽度（半角字符数）
+     * @param align    对齐方式 {@link #ALIGN_LEFT}、{@link #ALIGN_CENTER} 或 {@link #ALIGN_RIGHT}
+     * @param overflow 超出处理 {@link #OVERFLOW_WRAP} 或 {@link #OVERFLOW_TRUNCATE}
+     */
+    public PrintColumn(int width, int align, int overflow) {
+        mWidth = width > 0 ? width : 1;
+        mAlign = align;
+        mOverflow = overflow;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getAlign() {
+        return mAlign;
+    }
+
+    public int getOverflow() {
+        return mOverflow;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2015 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.printer;
+
+/**
+ * 图片二值化（抖动）策略
+ * 按行从上到下依次处理，实例带有状态，不可同时用于多张图片
+ * Created by Alex on 2026/10/17.
+ */
+public interface PrintDitherer {
+
+    /**
+     * 开始处理一张图片
+     *
+     * @param width 图片宽度
+     */
+    void start(int width);
+
+    /**
+     * 二值化一行像素并按位写入
+     * 每字节高位在前，1为黑色，行末不足8位补0
+     *
+     * @param pixels   ARGB像素
+     * @param width    宽度
+     * @param y        行号
+     * @param hasAlpha 是否含透明通道
+     * @param out      输出
+     * @param offset   输出起始位置
+     * @return 输出结束位置
+     */
+    int ditherRow(int[] pixels, int width, int y, boolean hasAlpha, byte[] out, int offset);
+}
@@ -20,7 +20,6 @@ import android.bluetooth.BluetoothDevice;
 import android.os.AsyncTask;
 
 import java.lang.ref.WeakReference;
-import java.util.List;
 
 /**
  * 打印执行者
@@ -30,7 +29,8 @@ public class PrintExecutor {
     private int type;
     private PrintSocketHolder holder;
     private int mReconnectTimes = 0;
-    private int time = 0;
+    private long mReconnectDelay = PrintJob.RECONNECT_DELAY_DEFAULT;
+    private long mReconnectMaxDelay = PrintJob.RECONNECT_MAX_DELAY_DEFAULT;
     private PrintSocketHolder.OnStateChangedListener listener;
     private WeakReference<OnPrintResultListener> mListener;
 
@@ -50,31 +50,19 @@ public class PrintExecutor {
      * @return 错误代码
      */
     private int doRequest(PrintDataMaker maker) {
-        if (mReconnectTimes == 0) {
-            holder.onPrinterStateChanged(PrintSocketHolder.STATE_0);
-            List<byte[]> data = maker.getPrintData(type);
-            if (!holder.isSocketPrepared()) {
-                int prepare = holder.prepareSocket();
-                if (prepare != PrintSocketHolder.ERROR_0)
-                    return prepare;
-            }
-            return holder.sendData(data);
-        } else {
-            holder.onPrinterStateChanged(PrintSocketHolder.STATE_0);
-            List<byte[]> data = maker.getPrintData(type);
-            if (holder.isSocketPrepared()) {
-                if (sendData(data))
-                    return PrintSocketHolder.ERROR_0;
-                else
-                    return PrintSocketHolder.ERROR_100;
-            } else {
-                if (prepareSocket() && sendData(data)) {
-                    return PrintSocketHolder.ERROR_0;
-                } else {
-                    return PrintSocketHolder.ERROR_100;
-                }
-            }
-        }
+        return new PrintJob(maker, type, null).execute(holder, mReconnectTimes,
+                mReconnectDelay, mReconnectMaxDelay);
+    }
+
+    /**
+     * 执行流式打印请求
+     * 先建立连接，再边生成边写入
+     *
+     * @return 错误代码
+     */
+    private int doRequest(PrintStreamDataMaker maker) {
+        return new PrintJob(maker, type, null).execute(holder, mReconnectTimes,
+                mReconnectDelay, mReconnectMaxDelay);
     }
 
     /**
@@ -87,19 +75,14 @@ public class PrintExecutor {
         return doRequest(maker);
     }
 
-    private boolean prepareSocket() {
-        time++;
-        return time < mReconnectTimes &&
-                (holder.prepareSocket() == PrintSocketHolder.ERROR_0 || prepareSocket());
-    }
-
-    private boolean sendData(List<byte[]> data) {
-        if (holder.sendData(data) == PrintSocketHolder.ERROR_0) {
-            time = 0;
-            return true;
-        } else {
-            return prepareSocket() && sendData(data);
-        }
+    /**
+     * 执行流式打印请求
+     *
+     * @return 错误代码
+     */
+    public int doPrinterRequest(PrintStreamDataMaker maker) {
+        holder.setOnStateChangedListener(listener);
+        return doRequest(maker);
     }
 
     /**
@@ -109,6 +92,13 @@ public class PrintExecutor {
         new PrintTask().execute(maker);
     }
 
+    /**
+     * 异步执行流式打印请求
+     */
+    public void doPrinterRequestAsync(PrintStreamDataMaker maker) {
+        new PrintTask().execute(maker);
+    }
+
     /**
      * 销毁
      */
@@ -135,6 +125,28 @@ public class PrintExecutor {
         holder.setDevice(device);
     }
 
+    /**
+     * 设置批量写入
+     * 开启后数据合并写入，仅在任务结束时刷新
+     *
+     * @param batch 是否批量写入
+     */
+    public void setBatchEnabled(boolean batch) {
+        holder.setBatchEnabled(batch);
+    }
+
+    /**
+     * 设置全双工模式
+     * 开启后读取打印机状态，按打印机就绪情况发送，缺纸或纸仓盖打开时立即失败
+     *
+     * @param duplex  是否开启
+     * @param timeout 等待打印机就绪的超时（毫秒）
+     */
+    public void setDuplexEnabled(boolean duplex, long timeout) {
+        holder.setDuplexEnabled(duplex);
+        holder.setStatusTimeout(timeout);
+    }
+
     /**
      * 设置打印类型
      *
@@ -161,6 +173,18 @@ public class PrintExecutor {
         mReconnectTimes = times;
     }
 
+    /**
+     * 设置重连间隔
+     * 每次重连失败后间隔加倍，直至最大间隔
+     *
+     * @param delay    首次重连间隔（毫秒）
+     * @param maxDelay 最大重连间隔（毫秒）
+     */
+    public void setReconnectDelay(long delay, long maxDelay) {
+        mReconnectDelay = delay;
+        mReconnectMaxDelay = maxDelay;
+    }
+
     /**
      * 设置结果回调
      * @param listener 回调
@@ -173,7 +197,7 @@ public class PrintExecutor {
         void onResult(int errorCode);
     }
 
-    private class PrintTask extends AsyncTask<PrintDataMaker, Integer, Integer> implements
+    private class PrintTask extends AsyncTask<Object, Integer, Integer> implements
             PrintSocketHolder.OnStateChangedListener {
 
         @Override
@@ -183,10 +207,12 @@ public class PrintExecutor {
         }
 
         @Override
-        protected Integer doInBackground(PrintDataMaker... makers) {
+        protected Integer doInBackground(Object... makers) {
             if (makers == null || makers.length < 1)
                 return PrintSocketHolder.ERROR_0;
-            return doRequest(makers[0]);
+            if (makers[0] instanceof PrintStreamDataMaker)
+                return doRequest((PrintStreamDataMaker) makers[0]);
+            return doRequest((PrintDataMaker) makers[0]);
         }
 
         @Override
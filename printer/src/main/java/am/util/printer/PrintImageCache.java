@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2015 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.printer;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 图片编码缓存
+ * 以资源ID、最大宽度、高度分割值及二值化策略为键缓存编码后的图片数据，按最近最少使用淘汰
+ * 缓存的数据为只读，不可修改
+ * Created by Alex on 2026/10/17.
+ */
+@SuppressWarnings("all")
+public class PrintImageCache {
+
+    public static final int MAX_SIZE_DEFAULT = 1024 * 1024;
+    private final LinkedHashMap<Key, ArrayList<byte[]>> mCache =
+            new LinkedHashMap<>(16, 0.75f, true);
+    private final int mMaxSize;
+    private int mSize;
+
+    public PrintImageCache() {
+        this(MAX_SIZE_DEFAULT);
+    }
+
+    /**
+     * 构造
+     *
+     * @param maxSize 最大缓存字节数
+     */
+    public PrintImageCache(int maxSize) {
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * 获取缓存
+     *
+     * @param id       资源ID
+     * @param maxWidth 最大宽度
+     * @param parting  高度分割值
+     * @param ditherer 二值化策略
+     * @return 编码后的图片数据，无缓存时为null
+     */
+    public synchronized ArrayList<byte[]> get(int id, int maxWidth, int parting,
+                                              PrintDitherer ditherer) {
+        return mCache.get(new Key(id, maxWidth, parting, ditherer));
+    }
+
+    /**
+     * 加入缓存
+     *
+     * @param id       资源ID
+     * @param maxWidth 最大宽度
+     * @param parting  高度分割值
+     * @param ditherer 二值化策略
+     * @param data     编码后的图片数据
+     */
+    public synchronized void put(int id, int maxWidth, int parting, PrintDitherer ditherer,
+                                 ArrayList<byte[]> data) {
+        if (data == null)
+            return;
+        final int size = sizeOf(data);
+        if (size > mMaxSize)
+            return;
+        final ArrayList<byte[]> old = mCache.put(new Key(id, maxWidth, parting, ditherer), data);
+        if (old != null)
+            mSize -= sizeOf(old);
+        mSize += size;
+        final Iterator<Map.Entry<Key, ArrayList<byte[]>>> iterator =
+                mCache.entrySet().iterator();
+        while (mSize > mMaxSize && iterator.hasNext()) {
+            mSize -= sizeOf(iterator.next().getValue());
+            iterator.remove();
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public synchronized void clear() {
+        mCache.clear();
+        mSize = 0;
+    }
+
+    /**
+     * 获取已缓存字节数
+     *
+     * @return 已缓存字节数
+     */
+    public synchronized int getSize() {
+        return mSize;
+    }
+
+    private static int sizeOf(ArrayList<byte[]> data) {
+        int size = 0;
+        for (byte[] item : data) {
+            size += item.length;
+        }
+        return size;
+    }
+
+    private static class Key {
+        private final int mId;
+        private final int mMaxWidth;
+        private final int mParting;
+        private final PrintDitherer mDitherer;
+
+        Key(int id, int maxWidth, int parting, PrintDitherer ditherer) {
+            mId = id;
+            mMaxWidth = maxWidth;
+            mParting = parting;
+            mDitherer = ditherer == null ? new ThresholdDitherer() : ditherer;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+            final Key key = (Key) o;
+            return mId == key.mId && mMaxWidth == key.mMaxWidth && mParting == key.mParting
+                    && mDitherer.equals(key.mDitherer);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = mId;
+            result = 31 * result + mMaxWidth;
+            result = 31 * result + mParting;
+            result = 31 * result + mDitherer.hashCode();
+            return result;
+        }
+    }
+}
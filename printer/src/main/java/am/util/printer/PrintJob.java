@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2015 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.printer;
+
+import java.util.List;
+
+/**
+ * 打印任务
+ * 建立连接并写入数据，失败时按退避间隔重连重试
+ * Created by Alex on 2026/10/17.
+ */
+class PrintJob {
+
+    static final long RECONNECT_DELAY_DEFAULT = 500;
+    static final long RECONNECT_MAX_DELAY_DEFAULT = 8000;
+    private final PrintDataMaker mMaker;
+    private final PrintStreamDataMaker mStreamMaker;
+    private final int mType;
+    private final PrintExecutor.OnPrintResultListener mListener;
+    private final long mCreateTime;
+
+    PrintJob(PrintDataMaker maker, int type, PrintExecutor.OnPrintResultListener listener) {
+        mMaker = maker;
+        mStreamMaker = null;
+        mType = type;
+        mListener = listener;
+        mCreateTime = System.nanoTime();
+    }
+
+    PrintJob(PrintStreamDataMaker maker, int type, PrintExecutor.OnPrintResultListener listener) {
+        mMaker = null;
+        mStreamMaker = maker;
+        mType = type;
+        mListener = listener;
+        mCreateTime = System.nanoTime();
+    }
+
+    /**
+     * 执行
+     *
+     * @param holder         打印Socket
+     * @param reconnectTimes 重连次数，为0时不重连并返回具体错误代码
+     * @param delay          首次重连间隔（毫秒）
+     * @param maxDelay       最大重连间隔（毫秒）
+     * @return 错误代码
+     */
+    int execute(PrintSocketHolder holder, int reconnectTimes, long delay, long maxDelay) {
+        holder.onPrinterStateChanged(PrintSocketHolder.STATE_0);
+        final List<byte[]> data = mMaker == null ? null : mMaker.getPrintData(mType);
+        int attempt = 0;
+        while (true) {
+            int result = holder.isSocketPrepared() ?
+                    PrintSocketHolder.ERROR_0 : holder.prepareSocket();
+            if (result == PrintSocketHolder.ERROR_0) {
+                result = mMaker != null ? holder.sendData(data) :
+                        holder.sendData(mStreamMaker, mType);
+            }
+            if (result == PrintSocketHolder.ERROR_0)
+                return PrintSocketHolder.ERROR_0;
+            if (isStatusError(result))
+                return result;// 缺纸、开盖等重连无法恢复，立即失败
+            if (attempt >= reconnectTimes)
+                return reconnectTimes <= 0 ? result : PrintSocketHolder.ERROR_100;
+            attempt++;
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return PrintSocketHolder.ERROR_100;
+                }
+                delay = Math.min(delay * 2, Math.max(delay, maxDelay));
+            }
+        }
+    }
+
+    private static boolean isStatusError(int result) {
+        return result <= PrintSocketHolder.ERROR_7 && result >= PrintSocketHolder.ERROR_10;
+    }
+
+    PrintExecutor.OnPrintResultListener getListener() {
+        return mListener;
+    }
+
+    /**
+     * 获取任务创建时间
+     *
+     * @return 创建时间（纳秒）
+     */
+    long getCreateTime() {
+        return mCreateTime;
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2015 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.printer;
+
+import android.graphics.Bitmap;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * 图片并行编码器
+ * 将图片按分段在线程池中并行编码，按顺序写入输出流；同时进行中的分段数有上限，内存占用与图片高度无关。
+ * 支持光栅位图指令（GS v 0，每段最多255行）及图形指令（GS ( L / GS 8 L，每段最多2400行，需打印机支持）。
+ * 误差扩散等有状态的二值化策略需按行顺序处理，此时退化为单线程逐段编码。
+ * 线程池不应是调用编码的线程所在的有界线程池，否则可能互相等待。
+ * Created by Alex on 2026/10/17.
+ */
+@SuppressWarnings("all")
+public class PrintRasterEncoder {
+
+    public static final int MODE_RASTER = 0;// 光栅位图 GS v 0
+    public static final int MODE_GRAPHICS = 1;// 图形 GS ( L / GS 8 L
+    public static final int GRAPHICS_HEIGHT_MAX = 2400;
+    private static final int GRAPHICS_WIDTH_MAX = 2040;
+    private final ExecutorService mExecutor;
+    private int mMode = MODE_RASTER;
+    private int mBandHeight = 0;
+    private int mMaxPending = Runtime.getRuntime().availableProcessors() * 2;
+
+    /**
+     * 构造
+     *
+     * @param executor 线程池，为null时单线程编码
+     */
+    public PrintRasterEncoder(ExecutorService executor) {
+        mExecutor = executor;
+    }
+
+    /**
+     * 设置指令类型
+     *
+     * @param mode {@link #MODE_RASTER} 或 {@link #MODE_GRAPHICS}
+     */
+    public void setMode(int mode) {
+        mMode = mode == MODE_GRAPHICS ? MODE_GRAPHICS : MODE_RASTER;
+    }
+
+    /**
+     * 设置分段高度
+     *
+     * @param height 分段高度，光栅位图最大255，图形最大 {@link #GRAPHICS_HEIGHT_MAX}，
+     *               小于等于0时取最大值（默认）
+     */
+    public void setBandHeight(int height) {
+        mBandHeight = height;
+    }
+
+    /**
+     * 设置同时进行中的最大分段数
+     *
+     * @param count 分段数
+     */
+    public void setMaxPending(int count) {
+        mMaxPending = Math.max(1, count);
+    }
+
+    /**
+     * 编码图片并写入输出流
+     * 不会回收传入的图片
+     *
+     * @param image    图片
+     * @param ditherer 二值化策略，为空时使用 {@link ThresholdDitherer}
+     * @param output   输出流
+     * @return 是否成功编码
+     * @throws IOException 异常
+     */
+    public boolean encode(Bitmap image, PrintDitherer ditherer, OutputStream output)
+            throws IOException {
+        if (image == null || image.getWidth() <= 0 || image.getHeight() <= 0)
+            return false;
+        if (image.getWidth() > GRAPHICS_WIDTH_MAX) {
+            final Bitmap resizeImage = PrinterUtils.scaleToMaxRasterWidth(image);
+            if (resizeImage == null)
+                return false;
+            try {
+                return encode(resizeImage, ditherer, output);
+            } finally {
+                resizeImage.recycle();
+            }
+        }
+        if (ditherer == null)
+            ditherer = new ThresholdDitherer();
+        final int max = mMode == MODE_GRAPHICS ? GRAPHICS_HEIGHT_MAX : 255;
+        final int band = mBandHeight <= 0 || mBandHeight > max ? max : mBandHeight;
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final int time = (height + band - 1) / band;
+        ditherer.start(width);
+        if (mExecutor == null || time == 1 || !isStateless(ditherer)) {
+            final int[] pixels = new int[width];
+            final byte[] out = new byte[getBandSize(width, Math.min(band, height))];
+            for (int t = 0; t < time; t++) {
+                final int length = encodeBand(image, t * band,
+                        Math.min(band, height - t * band), pixels, ditherer, out);
+                output.write(out, 0, length);
+            }
+            return true;
+        }
+        final LinkedList<Future<byte[]>> pending = new LinkedList<>();
+        try {
+            int next = 0;
+            for (int t = 0; t < time; t++) {
+                while (next < time && pending.size() < mMaxPending) {
+                    pending.add(mExecutor.submit(new BandTask(image, next * band,
+                            Math.min(band, height - next * band), ditherer)));
+                    next++;
+                }
+                output.write(pending.poll().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof OutOfMemoryError)
+                return false;
+            throw new IOException(cause);
+        } finally {
+            for (Future<byte[]> future : pending) {
+                future.cancel(true);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 是否为无状态的二值化策略（各行结果互不影响，可多线程共用）
+     *
+     * @param ditherer 二值化策略
+     * @return 是否无状态
+     */
+    private static boolean isStateless(PrintDitherer ditherer) {
+        return ditherer instanceof ThresholdDitherer || ditherer instanceof OrderedDitherer;
+    }
+
+    private int getBandSize(int width, int height) {
+        final int data = (width + 7) / 8 * height;
+        if (mMode == MODE_RASTER)
+            return 8 + data;
+        return (data + 10 > 0xFFFF ? 17 : 15) + data + 7;
+    }
+
+    private int encodeBand(Bitmap image, int top, int height, int[] pixels,
+                           PrintDitherer ditherer, byte[] out) {
+        final int width = image.getWidth();
+        final int widthBytes = (width + 7) / 8;
+        if (mMode == MODE_RASTER)
+            return PrinterUtils.encodeRasterBand(image, top, height, widthBytes, pixels,
+                    image.hasAlpha(), ditherer, out, 0);
+        int index = writeGraphicsHeader(out, width, height, widthBytes * height);
+        index = PrinterUtils.encodeRows(image, top, height, pixels, image.hasAlpha(), ditherer,
+                out, index);
+        // 打印缓存中的图形 GS ( L pL pH m fn
+        out[index++] = 0x1D;
+        out[index++] = 0x28;
+        out[index++] = 0x4C;
+        out[index++] = 0x02;
+        out[index++] = 0x00;
+        out[index++] = 0x30;
+        out[index++] = 0x32;
+        return index;
+    }
+
+    /**
+     * 写入图形存储指令
+     * GS ( L pL pH m fn a bx by c xL xH yL yH，参数超过65535字节时使用 GS 8 L p1 p2 p3 p4 ...
+     *
+     * @param out    输出
+     * @param width  宽度（点）
+     * @param height 高度（点）
+     * @param size   数据字节数
+     * @return 输出结束位置
+     */
+    private static int writeGraphicsHeader(byte[] out, int width, int height, int size) {
+        final int length = size + 10;
+        int index = 0;
+        out[index++] = 0x1D;
+        if (length > 0xFFFF) {
+            out[index++] = 0x38;
+            out[index++] = 0x4C;
+            out[index++] = (byte) length;
+            out[index++] = (byte) (length >> 8);
+            out[index++] = (byte) (length >> 16);
+            out[index++] = (byte) (length >> 24);
+        } else {
+            out[index++] = 0x28;
+            out[index++] = 0x4C;
+            out[index++] = (byte) length;
+            out[index++] = (byte) (length >> 8);
+        }
+        out[index++] = 0x30;// m
+        out[index++] = 0x70;// fn = 112
+        out[index++] = 0x30;// a 单色
+        out[index++] = 0x01;// bx
+        out[index++] = 0x01;// by
+        out[index++] = 0x31;// c 第一色
+        out[index++] = (byte) width;
+        out[index++] = (byte) (width >> 8);
+        out[index++] = (byte) height;
+        out[index++] = (byte) (height >> 8);
+        return index;
+    }
+
+    private class BandTask implements Callable<byte[]> {
+
+        private final Bitmap mImage;
+        private final int mTop;
+        private final int mHeight;
+        private final PrintDitherer mDitherer;
+
+        BandTask(Bitmap image, int top, int height, PrintDitherer ditherer) {
+            mImage = image;
+            mTop = top;
+            mHeight = height;
+            mDitherer = ditherer;
+        }
+
+        @Override
+        public byte[] call() throws Exception {
+            final int width = mImage.getWidth();
+            final byte[] out = new byte[getBandSize(width, mHeight)];
+            encodeBand(mImage, mTop, mHeight, new int[width], mDitherer, out);
+            return out;
+        }
+    }
+}
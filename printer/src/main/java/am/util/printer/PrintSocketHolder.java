@@ -22,7 +22,10 @@ import android.bluetooth.BluetoothSocket;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.ref.WeakReference;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
 import java.util.List;
 import java.util.UUID;
 
@@ -44,15 +47,30 @@ public class PrintSocketHolder {
     public static final int ERROR_4 = -4;// 写入测试页面数据失败
     public static final int ERROR_5 = -5;// 必要参数不能为空
     public static final int ERROR_6 = -6;// 关闭Socket出错
+    public static final int ERROR_7 = -7;// 缺纸
+    public static final int ERROR_8 = -8;// 纸仓盖打开
+    public static final int ERROR_9 = -9;// 打印机错误
+    public static final int ERROR_10 = -10;// 打印机未就绪超时
     public static final int ERROR_100 = -100;// 失败
+    public static final int BATCH_SIZE_TCP = 1460;// 以太网TCP最大报文段
+    public static final int BATCH_SIZE_BLUETOOTH = 990;// RFCOMM常用帧长
+    public static final long STATUS_TIMEOUT_DEFAULT = 10000;// 等待打印机就绪超时（毫秒）
     private static final UUID uuid = UUID.fromString("00001101-0000-1000-8000-00805F9B34FB");//蓝牙打印UUID
     private String ip;
     private int port = 9100;
     private BluetoothDevice mDevice;
     private Socket socket;
+    private SocketChannel channel;
     private BluetoothSocket bluetoothSocket;
     private OutputStream out;
     private WeakReference<OnStateChangedListener> mListener;
+    private boolean mBatch = false;
+    private int mBatchSize = 0;
+    private int mFlushBytes = 0;
+    private long mFlushInterval = 0;
+    private boolean mDuplex = false;
+    private long mStatusTimeout = STATUS_TIMEOUT_DEFAULT;
+    private PrinterStatusMonitor mMonitor;
 
     public PrintSocketHolder(BluetoothDevice device) {
         setDevice(device);
@@ -70,8 +88,14 @@ public class PrintSocketHolder {
             if (mDevice != null) {
                 bluetoothSocket = mDevice.createRfcommSocketToServiceRecord(uuid);
                 bluetoothSocket.connect();
+            } else if (mBatch && !mDuplex) {
+                // 仅批量写入时使用通道（聚集写入）
+                channel = SocketChannel.open(new InetSocketAddress(ip, port));
+                socket = channel.socket();
+                socket.setKeepAlive(true);
             } else {
                 socket = new Socket(ip, port);
+                socket.setKeepAlive(true);
             }
         } catch (Exception e) {
             closeSocket();
@@ -88,6 +112,14 @@ public class PrintSocketHolder {
             } else {
                 out = socket.getOutputStream();
             }
+            // SocketChannel的Socket在部分运行环境（Android 7.0及以上等）读写共用一个阻塞锁，
+            // 读取线程阻塞时写入也会阻塞，全双工模式只能使用普通Socket（连接后才开启时下次连接生效）
+            if (mDuplex && channel == null) {
+                mMonitor = new PrinterStatusMonitor(mDevice != null ?
+                        bluetoothSocket.getInputStream() : socket.getInputStream());
+                mMonitor.start();
+                mMonitor.enableAutomaticStatusBack(out);
+            }
         } catch (IOException e) {
             closeSocket();
             return ERROR_3;
@@ -103,14 +135,19 @@ public class PrintSocketHolder {
         onPrinterStateChanged(STATE_3);
         if (data == null || data.size() <= 0)
             return ERROR_0;
-        for (byte[] item : data) {
-            try {
-                out.write(item);
-                out.flush();
-            } catch (IOException e) {
-                closeSocket();
-                return ERROR_4;
+        if (mBatch)
+            return sendBatch(data.toArray(new byte[data.size()][]));
+        try {
+            final OutputStream output = getWriter();
+            for (byte[] item : data) {
+                output.write(item);
+                output.flush();
             }
+        } catch (PrinterStatusException e) {
+            return e.getErrorCode();
+        } catch (IOException e) {
+            closeSocket();
+            return ERROR_4;
         }
         return ERROR_0;
     }
@@ -118,8 +155,11 @@ public class PrintSocketHolder {
     public int sendData(byte[] data) {
         onPrinterStateChanged(STATE_3);
         try {
-            out.write(data);
-            out.flush();
+            final OutputStream output = getWriter();
+            output.write(data);
+            output.flush();
+        } catch (PrinterStatusException e) {
+            return e.getErrorCode();
         } catch (IOException e) {
             closeSocket();
             return ERROR_4;
@@ -129,18 +169,124 @@ public class PrintSocketHolder {
 
     public int sendData(byte[]... data) {
         onPrinterStateChanged(STATE_3);
-        for (byte[] item : data) {
-            try {
-                out.write(item);
-                out.flush();
-            } catch (IOException e) {
-                closeSocket();
-                return ERROR_4;
+        if (mBatch)
+            return sendBatch(data);
+        try {
+            final OutputStream output = getWriter();
+            for (byte[] item : data) {
+                output.write(item);
+                output.flush();
+            }
+        } catch (PrinterStatusException e) {
+            return e.getErrorCode();
+        } catch (IOException e) {
+            closeSocket();
+            return ERROR_4;
+        }
+        return ERROR_0;
+    }
+
+    /**
+     * 边生成边写入打印数据
+     * 数据经有限大小的缓存直接写入Socket，完成后统一刷新
+     *
+     * @param maker 打印数据生成
+     * @param type  打印类型
+     * @return 错误代码
+     */
+    public int sendData(PrintStreamDataMaker maker, int type) {
+        onPrinterStateChanged(STATE_3);
+        if (maker == null)
+            return ERROR_0;
+        try {
+            final OutputStream writer = getWriter();
+            final PrinterOutputStream output;
+            if (mBatch) {
+                output = new PrinterOutputStream(writer, getBatchSize());
+                output.setFlushThreshold(mFlushBytes, mFlushInterval);
+            } else {
+                output = new PrinterOutputStream(writer);
             }
+            maker.writePrintData(type, output);
+            output.flush();
+        } catch (PrinterStatusException e) {
+            return e.getErrorCode();
+        } catch (IOException e) {
+            closeSocket();
+            return ERROR_4;
         }
         return ERROR_0;
     }
 
+    /**
+     * 批量写入
+     * 网络连接使用聚集写入，一次系统调用写出多个元素；
+     * 蓝牙连接将元素合并为帧长大小的块再写入，仅在结束时刷新；
+     * 全双工模式下按块等待打印机就绪，不使用聚集写入
+     *
+     * @param data 数据
+     * @return 错误代码
+     */
+    private int sendBatch(byte[][] data) {
+        try {
+            final OutputStream writer = getWriter();
+            if (channel != null && mMonitor == null) {
+                int count = 0;
+                for (byte[] item : data) {
+                    if (item != null && item.length > 0)
+                        count++;
+                }
+                final ByteBuffer[] buffers = new ByteBuffer[count];
+                count = 0;
+                for (byte[] item : data) {
+                    if (item != null && item.length > 0)
+                        buffers[count++] = ByteBuffer.wrap(item);
+                }
+                int offset = 0;
+                while (offset < buffers.length) {
+                    channel.write(buffers, offset, buffers.length - offset);
+                    while (offset < buffers.length && !buffers[offset].hasRemaining())
+                        offset++;
+                }
+            } else {
+                final PrinterOutputStream output =
+                        new PrinterOutputStream(writer, getBatchSize());
+                output.setFlushThreshold(mFlushBytes, mFlushInterval);
+                for (byte[] item : data) {
+                    if (item != null)
+                        output.write(item);
+                }
+                output.flush();
+            }
+        } catch (PrinterStatusException e) {
+            return e.getErrorCode();
+        } catch (IOException e) {
+            closeSocket();
+            return ERROR_4;
+        }
+        return ERROR_0;
+    }
+
+    /**
+     * 获取写入流
+     * 全双工模式下先检查打印机状态，写入时按块等待打印机就绪
+     *
+     * @return 写入流
+     * @throws IOException 异常
+     */
+    private OutputStream getWriter() throws IOException {
+        if (mMonitor == null)
+            return out;
+        mMonitor.check(out, mStatusTimeout);
+        return mMonitor.wrap(out, getBatchSize(), mStatusTimeout);
+    }
+
+    private int getBatchSize() {
+        if (mBatchSize > 0)
+            return mBatchSize;
+        return mDevice != null ? BATCH_SIZE_BLUETOOTH : BATCH_SIZE_TCP;
+    }
+
     public int prepareSocket() {
         int create = createSocket();
         if (create != PrintSocketHolder.ERROR_0)
@@ -154,6 +300,10 @@ public class PrintSocketHolder {
     public int closeSocket() {
         onPrinterStateChanged(STATE_4);
         boolean error = false;
+        if (mMonitor != null) {
+            mMonitor.stop();
+            mMonitor = null;
+        }
         try {
             if (out != null) {
                 out.close();
@@ -172,6 +322,7 @@ public class PrintSocketHolder {
             socket = null;
             error = true;
         }
+        channel = null;
         try {
             if (bluetoothSocket != null) {
                 bluetoothSocket.close();
@@ -218,6 +369,69 @@ public class PrintSocketHolder {
         this.mDevice = device;
     }
 
+    /**
+     * 设置批量写入
+     * 开启后列表中的元素合并写入，仅在任务结束时刷新，避免每个元素（如图片的每一行）单独成包；
+     * 网络连接（非全双工模式）下次连接时改用SocketChannel
+     *
+     * @param batch 是否批量写入
+     */
+    public void setBatchEnabled(boolean batch) {
+        mBatch = batch;
+    }
+
+    /**
+     * 设置批量写入块大小
+     *
+     * @param size 块大小，小于等于0时按连接类型选择 {@link #BATCH_SIZE_TCP} 或
+     *             {@link #BATCH_SIZE_BLUETOOTH}
+     */
+    public void setBatchSize(int size) {
+        mBatchSize = size;
+    }
+
+    /**
+     * 设置批量写入的刷新阈值
+     * 默认仅在任务结束时刷新
+     *
+     * @param bytes    字节数，小于等于0时不按字节数刷新
+     * @param interval 时间间隔（毫秒），小于等于0时不按时间刷新
+     */
+    public void setFlushThreshold(int bytes, long interval) {
+        mFlushBytes = bytes;
+        mFlushInterval = interval;
+    }
+
+    /**
+     * 设置全双工模式
+     * 开启后连接时启动状态读取线程并开启自动状态回传，发送前查询实时状态（DLE EOT），
+     * 收到XOFF或脱机时暂停发送，缺纸、纸仓盖打开或出错时立即失败；
+     * 下次连接时生效
+     *
+     * @param duplex 是否开启
+     */
+    public void setDuplexEnabled(boolean duplex) {
+        mDuplex = duplex;
+    }
+
+    /**
+     * 设置等待打印机就绪的超时
+     *
+     * @param timeout 超时（毫秒）
+     */
+    public void setStatusTimeout(long timeout) {
+        mStatusTimeout = timeout;
+    }
+
+    /**
+     * 获取状态监视器
+     *
+     * @return 状态监视器，未开启全双工模式或未连接时为null
+     */
+    public PrinterStatusMonitor getStatusMonitor() {
+        return mMonitor;
+    }
+
     /**
      * 设置状态监听
      *
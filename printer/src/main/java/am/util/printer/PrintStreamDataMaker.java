@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2015 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.printer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 流式打印数据生成
+ * 边生成边写入，无需在内存中保留整个打印任务，
+ * 通常配合 {@link PrinterWriter#setOutputStream(OutputStream)} 使用。
+ * Created by Alex on 2026/10/17.
+ */
+public interface PrintStreamDataMaker {
+
+    /**
+     * 写入打印数据
+     * 不要关闭输出流
+     *
+     * @param type   打印类型
+     * @param output 输出流
+     * @throws IOException 异常
+     */
+    void writePrintData(int type, OutputStream output) throws IOException;
+}
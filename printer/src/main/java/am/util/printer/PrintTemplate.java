@@ -0,0 +1,277 @@
+/*
+ * Copyright (C) 2015 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.printer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * 打印模板
+ * 将票据中不变的部分（抬头、Logo、横线、页脚等）预先编码为字节段，仅保留变量插槽；
+ * 每次打印只需编码变量文字并拼接到预先组装好的数据中。
+ * 编译完成后不可修改，可在多个线程中同时使用。
+ * Created by Alex on 2026/10/17.
+ */
+@SuppressWarnings("all")
+public class PrintTemplate {
+
+    public static final int ALIGN_LEFT = 0;
+    public static final int ALIGN_CENTER = 1;
+    public static final int ALIGN_RIGHT = 2;
+    private static final String CHARSET = "gb2312";
+    private final byte[] mData;// 全部静态数据
+    private final int[] mOffsets;// 各插槽在静态数据中的位置
+    private final String[] mNames;
+    private final int[] mWidths;
+    private final int[] mAligns;
+    private final PrintTextEncoder mEncoder;
+
+    private PrintTemplate(byte[] data, int[] offsets, String[] names, int[] widths,
+                          int[] aligns, PrintTextEncoder encoder) {
+        mData = data;
+        mOffsets = offsets;
+        mNames = names;
+        mWidths = widths;
+        mAligns = aligns;
+        mEncoder = encoder;
+    }
+
+    /**
+     * 获取插槽数
+     *
+     * @return 插槽数
+     */
+    public int getSlotCount() {
+        return mNames.length;
+    }
+
+    /**
+     * 获取插槽名称
+     *
+     * @param index 插槽位置
+     * @return 名称
+     */
+    public String getSlotName(int index) {
+        return mNames[index];
+    }
+
+    /**
+     * 获取静态数据大小
+     *
+     * @return 字节数
+     */
+    public int getStaticSize() {
+        return mData.length;
+    }
+
+    /**
+     * 生成打印数据
+     *
+     * @param values 插槽名称与内容，缺少的插槽按空字符串处理
+     * @return 打印数据
+     */
+    public byte[] render(Map<String, String> values) {
+        final String[] texts = new String[mNames.length];
+        if (values != null) {
+            for (int i = 0; i < texts.length; i++) {
+                texts[i] = values.get(mNames[i]);
+            }
+        }
+        return render(texts);
+    }
+
+    /**
+     * 生成打印数据
+     *
+     * @param values 按插槽顺序排列的内容，缺少的插槽按空字符串处理
+     * @return 打印数据
+     */
+    public byte[] render(String... values) {
+        final byte[][] encoded = new byte[mNames.length][];
+        int size = mData.length;
+        for (int i = 0; i < encoded.length; i++) {
+            final String value = values != null && i < values.length ? values[i] : null;
+            encoded[i] = encode(i, value);
+            size += encoded[i].length;
+        }
+        final byte[] result = new byte[size];
+        int source = 0;
+        int target = 0;
+        for (int i = 0; i < encoded.length; i++) {
+            final int length = mOffsets[i] - source;
+            System.arraycopy(mData, source, result, target, length);
+            target += length;
+            source = mOffsets[i];
+            System.arraycopy(encoded[i], 0, result, target, encoded[i].length);
+            target += encoded[i].length;
+        }
+        System.arraycopy(mData, source, result, target, mData.length - source);
+        return result;
+    }
+
+    /**
+     * 生成打印数据并写入
+     *
+     * @param values 插槽名称与内容，缺少的插槽按空字符串处理
+     * @param output 输出流
+     * @throws IOException 异常
+     */
+    public void render(Map<String, String> values, OutputStream output) throws IOException {
+        int source = 0;
+        for (int i = 0; i < mNames.length; i++) {
+            output.write(mData, source, mOffsets[i] - source);
+            source = mOffsets[i];
+            output.write(encode(i, values == null ? null : values.get(mNames[i])));
+        }
+        output.write(mData, source, mData.length - source);
+    }
+
+    private byte[] encode(int index, String value) {
+        if (value == null)
+            value = "";
+        final int width = mWidths[index];
+        final byte[] text = mEncoder.encode(value);
+        final int padding = width - mEncoder.getWidth(value);
+        if (width <= 0 || padding <= 0)
+            return text;
+        // 空格在GB2312中为单字节0x20，直接填充
+        final byte[] result = new byte[text.length + padding];
+        final int left;
+        switch (mAligns[index]) {
+            default:
+            case ALIGN_LEFT:
+                left = 0;
+                break;
+            case ALIGN_CENTER:
+                left = padding / 2;
+                break;
+            case ALIGN_RIGHT:
+                left = padding;
+                break;
+        }
+        Arrays.fill(result, 0, left, (byte) ' ');
+        System.arraycopy(text, 0, result, left, text.length);
+        Arrays.fill(result, left + text.length, result.length, (byte) ' ');
+        return result;
+    }
+
+    /**
+     * 模板编译器
+     * 通过 {@link #getWriter()} 写入静态内容，在需要变量的位置调用 {@link #addSlot(String)}
+     */
+    public static class Builder {
+
+        private final PrinterWriter mWriter;
+        private final ArrayList<byte[]> mSegments = new ArrayList<>();
+        private final ArrayList<String> mNames = new ArrayList<>();
+        private final ArrayList<int[]> mFormats = new ArrayList<>();
+        private String mCharsetName = CHARSET;
+
+        /**
+         * 构造
+         *
+         * @param writer 写入器，不能为流式模式，此前写入的数据（如初始化指令）作为模板开头
+         */
+        public Builder(PrinterWriter writer) {
+            if (writer.isStreaming())
+                throw new IllegalStateException("PrinterWriter must not be streaming");
+            mWriter = writer;
+        }
+
+        /**
+         * 获取写入器
+         *
+         * @return 写入器
+         */
+        public PrinterWriter getWriter() {
+            return mWriter;
+        }
+
+        /**
+         * 设置插槽内容编码方式
+         *
+         * @param charsetName 编码方式
+         * @return 编译器
+         */
+        public Builder setCharset(String charsetName) {
+            mCharsetName = charsetName;
+            return this;
+        }
+
+        /**
+         * 在当前位置添加插槽
+         *
+         * @param name 名称
+         * @return 编译器
+         * @throws IOException 异常
+         */
+        public Builder addSlot(String name) throws IOException {
+            return addSlot(name, 0, ALIGN_LEFT);
+        }
+
+        /**
+         * 在当前位置添加定宽插槽
+         * 内容不足宽度时以空格补齐，超出时不截断
+         *
+         * @param name  名称
+         * @param width 宽度（半角字符数），小于等于0时不补齐
+         * @param align 对齐方式 {@link #ALIGN_LEFT}、{@link #ALIGN_CENTER} 或 {@link #ALIGN_RIGHT}
+         * @return 编译器
+         * @throws IOException 异常
+         */
+        public Builder addSlot(String name, int width, int align) throws IOException {
+            mSegments.add(mWriter.getDataAndReset());
+            mNames.add(name);
+            mFormats.add(new int[]{width, align});
+            return this;
+        }
+
+        /**
+         * 编译
+         *
+         * @return 模板
+         * @throws IOException 异常
+         */
+        public PrintTemplate build() throws IOException {
+            final byte[] last = mWriter.getDataAndReset();
+            int size = last.length;
+            for (byte[] segment : mSegments) {
+                size += segment.length;
+            }
+            final byte[] data = new byte[size];
+            final int count = mNames.size();
+            final int[] offsets = new int[count];
+            final int[] widths = new int[count];
+            final int[] aligns = new int[count];
+            int offset = 0;
+            for (int i = 0; i < count; i++) {
+                final byte[] segment = mSegments.get(i);
+                System.arraycopy(segment, 0, data, offset, segment.length);
+                offset += segment.length;
+                offsets[i] = offset;
+                widths[i] = mFormats.get(i)[0];
+                aligns[i] = mFormats.get(i)[1];
+            }
+            System.arraycopy(last, 0, data, offset, last.length);
+            return new PrintTemplate(data, offsets, mNames.toArray(new String[count]),
+                    widths, aligns, PrintTextEncoder.get(mCharsetName));
+        }
+    }
+}
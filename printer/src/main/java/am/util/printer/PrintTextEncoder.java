@@ -0,0 +1,288 @@
+/*
+ * Copyright (C) 2015 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.printer;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 文字编码及宽度
+ * GB2312、GBK、Big5 等双字节编码首次使用时建立整张编码表，此后编码和计算宽度均为查表：
+ * 打印机按编码字节数决定字宽，双字节字符为全角（宽2），单字节字符及无法编码而输出为“?”的字符（含emoji）为半角（宽1）。
+ * 其他编码（如UTF-8）使用 {@link Charset#encode(String)} 编码，宽度按东亚字宽计算，CJK及emoji为全角。
+ * 编码结果与 {@link String#getBytes(Charset)} 一致。
+ * Created by Alex on 2026/10/17.
+ */
+@SuppressWarnings("all")
+public class PrintTextEncoder {
+
+    private static final ConcurrentHashMap<String, PrintTextEncoder> ENCODERS =
+            new ConcurrentHashMap<>();
+    private static final char UNMAPPABLE = 0;
+    private final Charset mCharset;
+    private final char[] mCodes;// 字符对应编码，0为无法编码，小于0x100为单字节
+
+    private PrintTextEncoder(Charset charset) {
+        mCharset = charset;
+        mCodes = buildCodes(charset);
+    }
+
+    /**
+     * 获取编码器
+     *
+     * @param charsetName 编码方式
+     * @return 编码器
+     */
+    public static PrintTextEncoder get(String charsetName) {
+        PrintTextEncoder encoder = ENCODERS.get(charsetName);
+        if (encoder == null) {
+            encoder = new PrintTextEncoder(Charset.forName(charsetName));
+            final PrintTextEncoder old = ENCODERS.putIfAbsent(charsetName, encoder);
+            if (old != null)
+                encoder = old;
+        }
+        return encoder;
+    }
+
+    private static char[] buildCodes(Charset charset) {
+        final CharsetEncoder encoder = charset.newEncoder();
+        if (encoder.maxBytesPerChar() > 2)
+            return null;
+        final CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        final char[] codes = new char[65536];
+        final ByteBuffer in = ByteBuffer.allocate(2);
+        final CharBuffer out = CharBuffer.allocate(4);
+        final CharBuffer check = CharBuffer.allocate(1);
+        final ByteBuffer result = ByteBuffer.allocate(4);
+        final int end = encoder.maxBytesPerChar() > 1 ? 0xFF00 : 0x100;
+        for (int code = 0; code < end; code++) {
+            if (code >= 0x100 && code < 0x8140)
+                code = 0x8140;// 双字节首字节0x81～0xFE
+            if (code > 0xFF && (code & 0xFF) < 0x40)
+                continue;// 双字节尾字节0x40～0xFE
+            final boolean single = code < 0x100;
+            in.clear();
+            if (!single)
+                in.put((byte) (code >> 8));
+            in.put((byte) code);
+            in.flip();
+            out.clear();
+            decoder.reset();
+            decoder.decode(in, out, true);
+            decoder.flush(out);
+            out.flip();
+            if (out.remaining() != 1 || in.hasRemaining()) {
+                if (code < 0x80)
+                    return null;// 非ASCII兼容编码
+                continue;
+            }
+            final char c = out.get();
+            if (c == '\uFFFD' || codes[c] != UNMAPPABLE || Character.isHighSurrogate(c)
+                    || Character.isLowSurrogate(c))
+                continue;
+            // 仅保留可往返的编码，与String.getBytes一致
+            check.clear();
+            check.put(c);
+            check.flip();
+            result.clear();
+            encoder.reset();
+            encoder.encode(check, result, true);
+            encoder.flush(result);
+            result.flip();
+            if (single ? result.remaining() == 1 && result.get(0) == (byte) code :
+                    result.remaining() == 2 && result.get(0) == (byte) (code >> 8)
+                            && result.get(1) == (byte) code)
+                codes[c] = (char) code;
+            else if (code < 0x80)
+                return null;
+        }
+        return codes;
+    }
+
+    /**
+     * 获取编码方式
+     *
+     * @return 编码方式
+     */
+    public Charset getCharset() {
+        return mCharset;
+    }
+
+    /**
+     * 获取字符宽度
+     *
+     * @param c 字符
+     * @return 宽度，半角为1，全角为2
+     */
+    public int getWidth(char c) {
+        if (mCodes != null)
+            return mCodes[c] > 0xFF ? 2 : 1;
+        return isWide(c) ? 2 : 1;
+    }
+
+    /**
+     * 获取字符串宽度
+     *
+     * @param text 字符串
+     * @return 宽度
+     */
+    public int getWidth(String text) {
+        return getWidth(text, 0, text.length());
+    }
+
+    /**
+     * 获取字符串宽度
+     *
+     * @param text  字符串
+     * @param start 起始位置
+     * @param end   结束位置
+     * @return 宽度
+     */
+    public int getWidth(String text, int start, int end) {
+        int width = 0;
+        for (int i = start; i < end; i++) {
+            final char c = text.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < end
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                width += mCodes != null ? 1 : 2;
+                i++;
+                continue;
+            }
+            width += getWidth(c);
+        }
+        return width;
+    }
+
+    /**
+     * 获取下一个字符（含代理对）的长度
+     *
+     * @param text  字符串
+     * @param index 位置
+     * @param end   结束位置
+     * @return 1或2
+     */
+    int getCharCount(String text, int index, int end) {
+        return Character.isHighSurrogate(text.charAt(index)) && index + 1 < end
+                && Character.isLowSurrogate(text.charAt(index + 1)) ? 2 : 1;
+    }
+
+    /**
+     * 编码
+     *
+     * @param text 字符串
+     * @return 数据
+     */
+    public byte[] encode(String text) {
+        if (mCodes == null)
+            return getBytes(text);
+        final byte[] out = new byte[text.length() * 2];
+        final int length = encode(text, 0, text.length(), out, 0);
+        if (length == out.length)
+            return out;
+        final byte[] data = new byte[length];
+        System.arraycopy(out, 0, data, 0, length);
+        return data;
+    }
+
+    /**
+     * 使用编码方式编码
+     * 结果与 {@link String#getBytes(Charset)} 一致，该方法需要API 9
+     *
+     * @param text 字符串
+     * @return 编码结果
+     */
+    private byte[] getBytes(String text) {
+        final ByteBuffer buffer = mCharset.encode(text);
+        final byte[] data = new byte[buffer.remaining()];
+        buffer.get(data);
+        return data;
+    }
+
+    /**
+     * 编码到指定数组
+     *
+     * @param text   字符串
+     * @param start  起始位置
+     * @param end    结束位置
+     * @param out    输出，需有足够空间，见 {@link #getMaxLength(int)}
+     * @param offset 输出起始位置
+     * @return 输出结束位置
+     */
+    public int encode(String text, int start, int end, byte[] out, int offset) {
+        if (mCodes == null) {
+            final byte[] data = getBytes(text.substring(start, end));
+            System.arraycopy(data, 0, out, offset, data.length);
+            return offset + data.length;
+        }
+        final char[] codes = mCodes;
+        for (int i = start; i < end; i++) {
+            final char c = text.charAt(i);
+            final char code = codes[c];
+            if (code > 0xFF) {
+                out[offset++] = (byte) (code >> 8);
+                out[offset++] = (byte) code;
+            } else if (code != UNMAPPABLE || c == 0) {
+                out[offset++] = (byte) code;
+            } else {
+                if (Character.isHighSurrogate(c) && i + 1 < end
+                        && Character.isLowSurrogate(text.charAt(i + 1)))
+                    i++;
+                out[offset++] = '?';
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * 获取编码后的最大长度
+     *
+     * @param length 字符数
+     * @return 最大字节数
+     */
+    public int getMaxLength(int length) {
+        if (mCodes != null)
+            return length * 2;
+        return (int) Math.ceil(length * mCharset.newEncoder().maxBytesPerChar());
+    }
+
+    /**
+     * 是否全角字符（东亚字宽为W或F）
+     *
+     * @param c 字符
+     * @return 是否全角
+     */
+    static boolean isWide(char c) {
+        return (c >= 0x1100 && c <= 0x115F)
+                || (c >= 0x2E80 && c <= 0x303E)
+                || (c >= 0x3041 && c <= 0x33FF)
+                || (c >= 0x3400 && c <= 0x4DBF)
+                || (c >= 0x4E00 && c <= 0x9FFF)
+                || (c >= 0xA000 && c <= 0xA4CF)
+                || (c >= 0xAC00 && c <= 0xD7A3)
+                || (c >= 0xF900 && c <= 0xFAFF)
+                || (c >= 0xFE30 && c <= 0xFE4F)
+                || (c >= 0xFF00 && c <= 0xFF60)
+                || (c >= 0xFFE0 && c <= 0xFFE6);
+    }
+}
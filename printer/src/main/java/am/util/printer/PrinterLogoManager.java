@@ -0,0 +1,291 @@
+/*
+ * Copyright (C) 2015 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.printer;
+
+import android.graphics.Bitmap;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 打印机Logo管理
+ * 将常用图片存入打印机的 NV 位图（FS q）或下载位图（GS *）存储区，并记录各设备已存入的图片摘要；
+ * 设备已存有相同图片时只需发送几个字节的打印指令（FS p / GS /），无需每次发送整张光栅数据。
+ * NV 位图断电不丢失，但 FS q 会重写全部 NV 位图且写入次数有限，因此所有Logo作为一组整体写入，
+ * 仅在设备记录与当前组不一致时写入；写入的数据发送成功后须调用 {@link #onPrintResult(String, int)}，
+ * 此后才记录该设备已存有，失败时清除记录，记录可通过 {@link #getRecords()} 持久化；
+ * 下载位图只能存一张，断电、ESC @ 或 FS q 后清除，而每次打印开始时的初始化（ESC @）即会清除，
+ * 因此不按设备记录，每次打印先写入再打印，同一次打印中再次打印同一Logo时只发送打印指令
+ * （由 {@link PrinterWriter#printLogo(PrinterLogoManager, String, int)} 处理）。
+ * 设备标识可使用IP及端口或蓝牙地址。
+ * Created by Alex on 2026/10/17.
+ */
+@SuppressWarnings("all")
+public class PrinterLogoManager {
+
+    public static final int MODE_NV = 0;// NV位图
+    public static final int MODE_DOWNLOADED = 1;// 下载位图
+    private static final int NV_MAX_X = 1023;
+    private static final int NV_MAX_Y = 288;
+    private static final int NV_MAX_COUNT = 255;
+    private static final int NV_MAX_SIZE = 256 * 1024;
+    private static final int DOWNLOADED_MAX_X = 255;
+    private static final int DOWNLOADED_MAX_Y = 48;
+    private static final int DOWNLOADED_MAX_XY = 1536;
+    private final int mMode;
+    private final ArrayList<Logo> mLogos = new ArrayList<>();
+    private final HashMap<String, String> mRecords = new HashMap<>();
+    private final HashMap<String, String> mPending = new HashMap<>();// 已生成写入数据、尚未确认发送成功
+    private String mHash;// NV位图整组摘要
+    private int mSize;
+
+    public PrinterLogoManager() {
+        this(MODE_NV);
+    }
+
+    /**
+     * 构造
+     *
+     * @param mode 存储方式 {@link #MODE_NV} 或 {@link #MODE_DOWNLOADED}
+     */
+    public PrinterLogoManager(int mode) {
+        mMode = mode == MODE_DOWNLOADED ? MODE_DOWNLOADED : MODE_NV;
+    }
+
+    /**
+     * 添加Logo
+     * 图片应已缩放至打印宽度以内，不会回收传入的图片
+     *
+     * @param image    图片
+     * @param ditherer 二值化策略，为空时使用 {@link ThresholdDitherer}
+     * @return Logo编号（从1开始）
+     */
+    public synchronized int addLogo(Bitmap image, PrintDitherer ditherer) {
+        final byte[] data = PrinterUtils.decodeBitmapToColumnImage(image, ditherer);
+        if (data == null)
+            throw new IllegalArgumentException("image is empty");
+        final int x = (image.getWidth() + 7) / 8;
+        final int y = (image.getHeight() + 7) / 8;
+        if (mMode == MODE_NV) {
+            if (x > NV_MAX_X || y > NV_MAX_Y || mLogos.size() >= NV_MAX_COUNT
+                    || mSize + 4 + data.length > NV_MAX_SIZE)
+                throw new IllegalArgumentException("NV bit image is too large");
+        } else {
+            if (x > DOWNLOADED_MAX_X || y > DOWNLOADED_MAX_Y || x * y > DOWNLOADED_MAX_XY)
+                throw new IllegalArgumentException("Downloaded bit image is too large");
+        }
+        mLogos.add(new Logo(x, y, data));
+        mSize += 4 + data.length;
+        mHash = null;
+        return mLogos.size();
+    }
+
+    /**
+     * 获取Logo数
+     *
+     * @return Logo数
+     */
+    public synchronized int getLogoCount() {
+        return mLogos.size();
+    }
+
+    /**
+     * 获取打印数据
+     * 设备未存有该Logo时先写入再打印，写入指令应位于行首；下载位图方式总是先写入再打印
+     *
+     * @param device 设备标识
+     * @param logo   Logo编号
+     * @return 打印数据
+     */
+    public synchronized byte[] getPrintData(String device, int logo) {
+        if (logo < 1 || logo > mLogos.size())
+            throw new IllegalArgumentException("Unknown logo: " + logo);
+        if (mMode == MODE_NV) {
+            final byte[] print = PrintCommands.printNVBitImage(logo, 0);
+            final String hash = getHash();
+            if (hash.equals(mRecords.get(device)))
+                return print;
+            mPending.put(device, hash);
+            return PrinterUtils.mergerByteArray(getDefineData(), print);
+        }
+        final Logo item = mLogos.get(logo - 1);
+        return PrinterUtils.mergerByteArray(
+                PrintCommands.defineDownloadedBitImage(item.mX, item.mY, item.mData),
+                PrintCommands.printDownloadedBitImage(0));
+    }
+
+    /**
+     * 获取仅打印的数据
+     * 用于同一次打印中已写入过的Logo
+     *
+     * @param logo Logo编号
+     * @return 打印指令
+     */
+    synchronized byte[] getPrintOnlyData(int logo) {
+        if (logo < 1 || logo > mLogos.size())
+            throw new IllegalArgumentException("Unknown logo: " + logo);
+        return mMode == MODE_NV ? PrintCommands.printNVBitImage(logo, 0) :
+                PrintCommands.printDownloadedBitImage(0);
+    }
+
+    /**
+     * 获取写入后打印机存储区内容的摘要
+     *
+     * @param logo Logo编号
+     * @return 摘要，NV位图方式为整组摘要
+     */
+    synchronized String getStoredHash(int logo) {
+        if (logo < 1 || logo > mLogos.size())
+            throw new IllegalArgumentException("Unknown logo: " + logo);
+        return mMode == MODE_NV ? getHash() : mLogos.get(logo - 1).mHash;
+    }
+
+    /**
+     * 设备是否存有该Logo
+     *
+     * @param device 设备标识
+     * @param logo   Logo编号
+     * @return 是否存有，下载位图方式总是false
+     */
+    public synchronized boolean isDefined(String device, int logo) {
+        if (mMode != MODE_NV || logo < 1 || logo > mLogos.size())
+            return false;
+        return getHash().equals(mRecords.get(device));
+    }
+
+    /**
+     * 获取NV位图写入指令
+     * 包含全部Logo，可在空闲时预先发送
+     *
+     * @return 写入指令，下载位图方式为null
+     */
+    public synchronized byte[] getDefineData() {
+        if (mMode != MODE_NV)
+            return null;
+        final byte[] images = new byte[mSize];
+        int offset = 0;
+        for (Logo logo : mLogos) {
+            images[offset++] = (byte) logo.mX;
+            images[offset++] = (byte) (logo.mX >> 8);
+            images[offset++] = (byte) logo.mY;
+            images[offset++] = (byte) (logo.mY >> 8);
+            System.arraycopy(logo.mData, 0, images, offset, logo.mData.length);
+            offset += logo.mData.length;
+        }
+        return PrintCommands.defineNVBitImage(mLogos.size(), images);
+    }
+
+    /**
+     * 清除设备记录
+     * 设备重置、更换或写入失败时调用，下次打印时重新写入
+     *
+     * @param device 设备标识
+     */
+    public synchronized void invalidate(String device) {
+        mRecords.remove(device);
+        mPending.remove(device);
+    }
+
+    /**
+     * 打印结果
+     * 打印任务结束后调用（如 {@link PrintExecutor#doPrinterRequest(PrintDataMaker)} 的返回值或
+     * {@link PrintExecutor.OnPrintResultListener}），成功时记录该设备已存有此前生成的写入数据，
+     * 写入数据发送失败时打印机存储区状态未知，清除记录，下次打印时重新写入；
+     * 仅发送了打印指令的任务失败时保留记录，避免无谓地重写 NV 存储区（写入次数有限）
+     *
+     * @param device    设备标识
+     * @param errorCode 错误代码
+     */
+    public synchronized void onPrintResult(String device, int errorCode) {
+        final String pending = mPending.remove(device);
+        if (pending == null)
+            return;
+        if (errorCode == PrintSocketHolder.ERROR_0)
+            mRecords.put(device, pending);
+        else
+            mRecords.remove(device);
+    }
+
+    /**
+     * 获取全部设备记录
+     *
+     * @return 设备标识与图片摘要
+     */
+    public synchronized Map<String, String> getRecords() {
+        return new HashMap<>(mRecords);
+    }
+
+    /**
+     * 恢复设备记录
+     * 用于恢复持久化的NV位图记录
+     *
+     * @param device 设备标识
+     * @param hash   图片摘要
+     */
+    public synchronized void setRecord(String device, String hash) {
+        mRecords.put(device, hash);
+    }
+
+    private String getHash() {
+        if (mHash == null) {
+            final MessageDigest digest = getDigest();
+            for (Logo logo : mLogos) {
+                digest.update(logo.mHash.getBytes());
+            }
+            mHash = toHex(digest.digest());
+        }
+        return mHash;
+    }
+
+    private static MessageDigest getDigest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        final char[] digits = "0123456789abcdef".toCharArray();
+        final char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = digits[(bytes[i] >> 4) & 0x0F];
+            hex[i * 2 + 1] = digits[bytes[i] & 0x0F];
+        }
+        return new String(hex);
+    }
+
+    private static class Logo {
+        private final int mX;
+        private final int mY;
+        private final byte[] mData;
+        private final String mHash;
+
+        Logo(int x, int y, byte[] data) {
+            mX = x;
+            mY = y;
+            mData = data;
+            final MessageDigest digest = getDigest();
+            digest.update(new byte[]{(byte) x, (byte) (x >> 8), (byte) y, (byte) (y >> 8)});
+            digest.update(data);
+            mHash = toHex(digest.digest());
+        }
+    }
+}
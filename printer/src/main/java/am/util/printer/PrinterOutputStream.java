@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2015 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.printer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * 打印输出流
+ * 固定大小的写入缓存，合并零碎的小指令后再写入目标输出流或通道；
+ * 超过缓存大小的数据（如图片分段）直接写入，不再复制。
+ * 默认仅在调用 {@link #flush()} 时刷新目标输出流，也可设置按字节数或时间间隔刷新。
+ * 目标通道须为阻塞模式。
+ * Created by Alex on 2026/10/17.
+ */
+@SuppressWarnings("all")
+public class PrinterOutputStream extends OutputStream {
+
+    public static final int BUFFER_SIZE_DEFAULT = 4096;
+    private final OutputStream mOutput;
+    private final WritableByteChannel mChannel;
+    private final byte[] mBuffer;
+    private int mCount;
+    private int mFlushBytes;
+    private long mFlushInterval;
+    private long mUnflushed;
+    private long mFlushTime = System.nanoTime();
+
+    public PrinterOutputStream(OutputStream output) {
+        this(output, BUFFER_SIZE_DEFAULT);
+    }
+
+    public PrinterOutputStream(OutputStream output, int size) {
+        if (output == null)
+            throw new NullPointerException("output is null");
+        mOutput = output;
+        mChannel = null;
+        mBuffer = new byte[size <= 0 ? BUFFER_SIZE_DEFAULT : size];
+    }
+
+    public PrinterOutputStream(WritableByteChannel channel) {
+        this(channel, BUFFER_SIZE_DEFAULT);
+    }
+
+    public PrinterOutputStream(WritableByteChannel channel, int size) {
+        if (channel == null)
+            throw new NullPointerException("channel is null");
+        mOutput = null;
+        mChannel = channel;
+        mBuffer = new byte[size <= 0 ? BUFFER_SIZE_DEFAULT : size];
+    }
+
+    /**
+     * 设置刷新阈值
+     * 于写入时检查，未写出及未刷新的数据达到字节数或距上次刷新超过时间间隔时刷新
+     *
+     * @param bytes    字节数，小于等于0时不按字节数刷新
+     * @param interval 时间间隔（毫秒），小于等于0时不按时间刷新
+     */
+    public void setFlushThreshold(int bytes, long interval) {
+        mFlushBytes = bytes;
+        mFlushInterval = interval;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (mCount >= mBuffer.length)
+            flushBuffer();
+        mBuffer[mCount++] = (byte) b;
+        checkFlushThreshold();
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len >= mBuffer.length) {
+            flushBuffer();
+            writeTarget(b, off, len);
+        } else {
+            if (len > mBuffer.length - mCount)
+                flushBuffer();
+            System.arraycopy(b, off, mBuffer, mCount, len);
+            mCount += len;
+        }
+        checkFlushThreshold();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        if (mOutput != null)
+            mOutput.flush();
+        mUnflushed = 0;
+        mFlushTime = System.nanoTime();
+    }
+
+    /**
+     * 关闭，同时关闭目标输出流或通道
+     *
+     * @throws IOException 异常
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            if (mOutput != null)
+                mOutput.close();
+            else
+                mChannel.close();
+        }
+    }
+
+    /**
+     * 获取缓存中尚未写出的数据长度
+     *
+     * @return 数据长度
+     */
+    public int getBufferedCount() {
+        return mCount;
+    }
+
+    private void checkFlushThreshold() throws IOException {
+        if (mFlushBytes > 0 && mUnflushed + mCount >= mFlushBytes) {
+            flush();
+        } else if (mFlushInterval > 0 &&
+                System.nanoTime() - mFlushTime >= mFlushInterval * 1000000L) {
+            flush();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (mCount > 0) {
+            writeTarget(mBuffer, 0, mCount);
+            mCount = 0;
+        }
+    }
+
+    private void writeTarget(byte[] b, int off, int len) throws IOException {
+        mUnflushed += len;
+        if (mOutput != null) {
+            mOutput.write(b, off, len);
+            return;
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+        while (buffer.hasRemaining()) {
+            mChannel.write(buffer);
+        }
+    }
+}
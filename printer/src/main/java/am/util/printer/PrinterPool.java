@@ -0,0 +1,419 @@
+/*
+ * Copyright (C) 2015 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.printer;
+
+import android.bluetooth.BluetoothDevice;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 打印机连接池
+ * 每台打印机保持一个长连接及一个先进先出的任务队列，同一打印机的任务依次执行；
+ * 不同打印机的任务并发执行，并发数受限。每执行完一个任务即让出线程，避免任务多的打印机阻塞其他打印机。
+ * 连接空闲超时后自动关闭，失败时按退避间隔重连，数据批量写入。
+ * 结果回调在主线程执行。
+ * Created by Alex on 2026/10/17.
+ */
+@SuppressWarnings("all")
+public class PrinterPool {
+
+    public static final int MAX_CONCURRENT_DEFAULT = 4;
+    public static final long IDLE_TIMEOUT_DEFAULT = 30000;
+    private final HashMap<String, Printer> mPrinters = new HashMap<>();
+    private final ExecutorService mExecutor;
+    private final ScheduledExecutorService mScheduler;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private volatile boolean mShutdown = false;
+    private volatile long mIdleTimeout = IDLE_TIMEOUT_DEFAULT;
+    private volatile int mReconnectTimes = 3;
+    private volatile long mReconnectDelay = PrintJob.RECONNECT_DELAY_DEFAULT;
+    private volatile long mReconnectMaxDelay = PrintJob.RECONNECT_MAX_DELAY_DEFAULT;
+
+    public PrinterPool() {
+        this(MAX_CONCURRENT_DEFAULT);
+    }
+
+    /**
+     * 构造
+     *
+     * @param maxConcurrent 最大并发打印机数
+     */
+    public PrinterPool(int maxConcurrent) {
+        final ThreadFactory factory = new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger(1);
+
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "PrinterPool #" + mCount.getAndIncrement());
+            }
+        };
+        mExecutor = Executors.newFixedThreadPool(maxConcurrent <= 0 ?
+                MAX_CONCURRENT_DEFAULT : maxConcurrent, factory);
+        mScheduler = Executors.newSingleThreadScheduledExecutor(factory);
+    }
+
+    /**
+     * 获取网络打印机
+     *
+     * @param ip   IP
+     * @param port 端口
+     * @param type 打印类型
+     * @return 打印机
+     */
+    public Printer getPrinter(String ip, int port, int type) {
+        final String key = ip + ":" + port;
+        synchronized (mPrinters) {
+            Printer printer = mPrinters.get(key);
+            if (printer == null) {
+                printer = new Printer(key, new PrintSocketHolder(ip, port), type);
+                mPrinters.put(key, printer);
+            }
+            return printer;
+        }
+    }
+
+    /**
+     * 获取蓝牙打印机
+     *
+     * @param device 设备
+     * @param type   打印类型
+     * @return 打印机
+     */
+    public Printer getPrinter(BluetoothDevice device, int type) {
+        final String key = device.getAddress();
+        synchronized (mPrinters) {
+            Printer printer = mPrinters.get(key);
+            if (printer == null) {
+                printer = new Printer(key, new PrintSocketHolder(device), type);
+                mPrinters.put(key, printer);
+            }
+            return printer;
+        }
+    }
+
+    /**
+     * 获取所有打印机
+     *
+     * @return 打印机
+     */
+    public ArrayList<Printer> getPrinters() {
+        synchronized (mPrinters) {
+            return new ArrayList<>(mPrinters.values());
+        }
+    }
+
+    /**
+     * 设置连接空闲超时
+     *
+     * @param timeout 超时（毫秒），小于等于0时任务完成后立即关闭连接
+     */
+    public void setIdleTimeout(long timeout) {
+        mIdleTimeout = timeout;
+    }
+
+    /**
+     * 设置重连次数
+     *
+     * @param times 次数
+     */
+    public void setReconnectTimes(int times) {
+        mReconnectTimes = times;
+    }
+
+    /**
+     * 设置重连间隔
+     * 每次重连失败后间隔加倍，直至最大间隔
+     *
+     * @param delay    首次重连间隔（毫秒）
+     * @param maxDelay 最大重连间隔（毫秒）
+     */
+    public void setReconnectDelay(long delay, long maxDelay) {
+        mReconnectDelay = delay;
+        mReconnectMaxDelay = maxDelay;
+    }
+
+    /**
+     * 关闭
+     * 未执行的任务以 {@link PrintSocketHolder#ERROR_100} 回调，正在执行的任务完成后关闭连接
+     */
+    public void shutdown() {
+        mShutdown = true;
+        final ArrayList<Printer> printers = getPrinters();
+        for (Printer printer : printers) {
+            printer.cancelAll();
+        }
+        mExecutor.shutdown();
+        mScheduler.shutdownNow();
+        for (Printer printer : printers) {
+            printer.closeIfIdle();
+        }
+    }
+
+    private void postResult(final PrintJob job, final int errorCode) {
+        final PrintExecutor.OnPrintResultListener listener = job.getListener();
+        if (listener == null)
+            return;
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                listener.onResult(errorCode);
+            }
+        });
+    }
+
+    /**
+     * 打印机
+     */
+    public class Printer implements Runnable {
+
+        private final String mKey;
+        private final PrintSocketHolder mHolder;
+        private final int mType;
+        private final LinkedList<PrintJob> mJobs = new LinkedList<>();
+        private boolean mRunning = false;
+        private ScheduledFuture<?> mIdleClose;
+        private long mCompleted;
+        private long mFailed;
+        private long mTotalLatency;
+        private long mMaxLatency;
+        private long mLastLatency;
+        private final Runnable mCloseTask = new Runnable() {
+            @Override
+            public void run() {
+                closeIfIdle();
+            }
+        };
+
+        private Printer(String key, PrintSocketHolder holder, int type) {
+            mKey = key;
+            mHolder = holder;
+            mHolder.setBatchEnabled(true);
+            mType = type;
+        }
+
+        /**
+         * 设置全双工模式
+         * 读取打印机状态，按打印机就绪情况发送，缺纸或纸仓盖打开时立即失败；下次连接时生效
+         *
+         * @param duplex  是否开启
+         * @param timeout 等待打印机就绪的超时（毫秒）
+         */
+        public void setDuplexEnabled(boolean duplex, long timeout) {
+            mHolder.setDuplexEnabled(duplex);
+            mHolder.setStatusTimeout(timeout);
+        }
+
+        /**
+         * 加入打印任务
+         *
+         * @param maker    打印数据生成
+         * @param listener 结果回调
+         */
+        public void print(PrintDataMaker maker, PrintExecutor.OnPrintResultListener listener) {
+            enqueue(new PrintJob(maker, mType, listener));
+        }
+
+        /**
+         * 加入流式打印任务
+         *
+         * @param maker    打印数据生成
+         * @param listener 结果回调
+         */
+        public void print(PrintStreamDataMaker maker,
+                          PrintExecutor.OnPrintResultListener listener) {
+            enqueue(new PrintJob(maker, mType, listener));
+        }
+
+        private void enqueue(PrintJob job) {
+            synchronized (this) {
+                if (!mShutdown) {
+                    mJobs.add(job);
+                    if (mIdleClose != null) {
+                        mIdleClose.cancel(false);
+                        mIdleClose = null;
+                    }
+                    if (mRunning)
+                        return;
+                    mRunning = true;
+                    try {
+                        mExecutor.execute(this);
+                        return;
+                    } catch (RejectedExecutionException e) {
+                        mRunning = false;
+                        mJobs.remove(job);
+                    }
+                }
+            }
+            postResult(job, PrintSocketHolder.ERROR_100);
+        }
+
+        @Override
+        public void run() {
+            final PrintJob job;
+            synchronized (this) {
+                job = mJobs.poll();
+                if (job == null) {
+                    mRunning = false;
+                    return;
+                }
+            }
+            final int result = job.execute(mHolder, mReconnectTimes, mReconnectDelay,
+                    mReconnectMaxDelay);
+            final long latency = TimeUnit.NANOSECONDS.toMillis(
+                    System.nanoTime() - job.getCreateTime());
+            synchronized (this) {
+                if (result == PrintSocketHolder.ERROR_0)
+                    mCompleted++;
+                else
+                    mFailed++;
+                mTotalLatency += latency;
+                mLastLatency = latency;
+                if (latency > mMaxLatency)
+                    mMaxLatency = latency;
+            }
+            postResult(job, result);
+            synchronized (this) {
+                if (!mJobs.isEmpty() && !mShutdown) {
+                    try {
+                        // 重新排队，让其他打印机的任务有机会执行
+                        mExecutor.execute(this);
+                        return;
+                    } catch (RejectedExecutionException e) {
+                        // 已关闭
+                    }
+                }
+                mRunning = false;
+                if (mShutdown) {
+                    mHolder.closeSocket();
+                } else if (mIdleTimeout <= 0) {
+                    mHolder.closeSocket();
+                } else {
+                    try {
+                        mIdleClose = mScheduler.schedule(mCloseTask, mIdleTimeout,
+                                TimeUnit.MILLISECONDS);
+                    } catch (RejectedExecutionException e) {
+                        mHolder.closeSocket();
+                    }
+                }
+            }
+        }
+
+        private void cancelAll() {
+            final ArrayList<PrintJob> jobs;
+            synchronized (this) {
+                jobs = new ArrayList<>(mJobs);
+                mJobs.clear();
+            }
+            for (PrintJob job : jobs) {
+                postResult(job, PrintSocketHolder.ERROR_100);
+            }
+        }
+
+        private void closeIfIdle() {
+            synchronized (this) {
+                mIdleClose = null;
+                if (!mRunning && mJobs.isEmpty())
+                    mHolder.closeSocket();
+            }
+        }
+
+        /**
+         * 获取打印机标识（IP:端口 或 蓝牙地址）
+         *
+         * @return 标识
+         */
+        public String getKey() {
+            return mKey;
+        }
+
+        /**
+         * 获取排队中的任务数（不含正在执行的任务）
+         *
+         * @return 任务数
+         */
+        public synchronized int getQueueDepth() {
+            return mJobs.size();
+        }
+
+        /**
+         * 是否正在执行任务
+         *
+         * @return 是否正在执行
+         */
+        public synchronized boolean isRunning() {
+            return mRunning;
+        }
+
+        /**
+         * 获取成功任务数
+         *
+         * @return 任务数
+         */
+        public synchronized long getCompletedCount() {
+            return mCompleted;
+        }
+
+        /**
+         * 获取失败任务数
+         *
+         * @return 任务数
+         */
+        public synchronized long getFailedCount() {
+            return mFailed;
+        }
+
+        /**
+         * 获取平均延迟（自加入队列至执行完成）
+         *
+         * @return 延迟（毫秒）
+         */
+        public synchronized long getAverageLatency() {
+            final long count = mCompleted + mFailed;
+            return count == 0 ? 0 : mTotalLatency / count;
+        }
+
+        /**
+         * 获取最大延迟
+         *
+         * @return 延迟（毫秒）
+         */
+        public synchronized long getMaxLatency() {
+            return mMaxLatency;
+        }
+
+        /**
+         * 获取最近一次任务的延迟
+         *
+         * @return 延迟（毫秒）
+         */
+        public synchronized long getLastLatency() {
+            return mLastLatency;
+        }
+    }
+}
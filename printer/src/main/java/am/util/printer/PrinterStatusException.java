@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2015 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.printer;
+
+import java.io.IOException;
+
+/**
+ * 打印机状态异常
+ * 缺纸、纸仓盖打开、打印机错误或长时间未就绪
+ * Created by Alex on 2026/10/17.
+ */
+public class PrinterStatusException extends IOException {
+
+    private final int mErrorCode;
+
+    public PrinterStatusException(int errorCode, String message) {
+        super(message);
+        mErrorCode = errorCode;
+    }
+
+    /**
+     * 获取错误代码
+     *
+     * @return 错误代码 {@link PrintSocketHolder#ERROR_7} ~ {@link PrintSocketHolder#ERROR_10}
+     */
+    public int getErrorCode() {
+        return mErrorCode;
+    }
+}
@@ -0,0 +1,376 @@
+/*
+ * Copyright (C) 2015 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.printer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * 打印机状态监视器
+ * 在独立线程中读取打印机回传的数据：
+ * XON(0x11)/XOFF(0x13) 流控字符、DLE EOT 实时状态应答（0xx1xx10）及自动状态回传 ASB（首字节0xx1xx00，共4字节）。
+ * 写入数据前等待打印机就绪，缺纸、纸仓盖打开或出错时立即失败。
+ * 不支持回传的打印机，查询超时后不再等待。
+ * Created by Alex on 2026/10/17.
+ */
+@SuppressWarnings("all")
+public class PrinterStatusMonitor implements Runnable {
+
+    private static final int XON = 0x11;
+    private static final int XOFF = 0x13;
+    private static final int ASB_STATUS = 0x0E;// 联机/脱机、错误、纸传感器
+    private final InputStream mInput;
+    private final Object mLock = new Object();
+    private Thread mThread;
+    private boolean mStopped = false;
+    private boolean mSupported = true;
+    private boolean mPaused = false;
+    private boolean mOffline = false;
+    private boolean mCoverOpen = false;
+    private boolean mPaperEnd = false;
+    private boolean mPaperNearEnd = false;
+    private boolean mError = false;
+    private int mAsbIndex = -1;
+    private int mReply = -1;
+    private long mReplyCount = 0;
+
+    public PrinterStatusMonitor(InputStream input) {
+        mInput = input;
+    }
+
+    /**
+     * 开始读取
+     */
+    public void start() {
+        synchronized (mLock) {
+            if (mThread != null)
+                return;
+            mThread = new Thread(this, "PrinterStatusMonitor");
+            mThread.setDaemon(true);
+            mThread.start();
+        }
+    }
+
+    /**
+     * 停止读取
+     * 关闭Socket后读取线程自然结束
+     */
+    public void stop() {
+        synchronized (mLock) {
+            mStopped = true;
+            mLock.notifyAll();
+        }
+    }
+
+    @Override
+    public void run() {
+        final byte[] buffer = new byte[64];
+        try {
+            int count;
+            while ((count = mInput.read(buffer)) >= 0) {
+                synchronized (mLock) {
+                    for (int i = 0; i < count; i++) {
+                        onByte(buffer[i] & 0xFF);
+                    }
+                    mLock.notifyAll();
+                }
+            }
+        } catch (IOException e) {
+            // 连接已关闭
+        } finally {
+            stop();
+        }
+    }
+
+    private void onByte(int b) {
+        if (mAsbIndex > 0) {
+            onAutomaticStatus(mAsbIndex, b);
+            mAsbIndex = mAsbIndex == 3 ? -1 : mAsbIndex + 1;
+            return;
+        }
+        if (b == XON) {
+            mPaused = false;
+        } else if (b == XOFF) {
+            mPaused = true;
+        } else if ((b & 0x93) == 0x10) {
+            onAutomaticStatus(0, b);
+            mAsbIndex = 1;
+        } else if ((b & 0x93) == 0x12) {
+            mReply = b;
+            mReplyCount++;
+        }
+    }
+
+    private void onAutomaticStatus(int index, int b) {
+        switch (index) {
+            case 0:
+                mOffline = (b & 0x08) != 0;
+                mCoverOpen = (b & 0x20) != 0;
+                break;
+            case 1:
+                mError = (b & 0x68) != 0;
+                break;
+            case 2:
+                mPaperNearEnd = (b & 0x03) != 0;
+                mPaperEnd = (b & 0x0C) != 0;
+                break;
+        }
+    }
+
+    /**
+     * 开启自动状态回传
+     *
+     * @param output 输出流
+     * @throws IOException 异常
+     */
+    public void enableAutomaticStatusBack(OutputStream output) throws IOException {
+        output.write(PrintCommands.setAutomaticStatusBack(ASB_STATUS));
+        output.flush();
+    }
+
+    /**
+     * 实时查询状态（DLE EOT n）
+     * 只能在指令边界调用，不能插入到其他指令的数据中
+     *
+     * @param output  输出流
+     * @param n       1：打印机状态；2：脱机状态；3：错误状态；4：纸传感器状态
+     * @param timeout 超时（毫秒）
+     * @return 状态字节，超时返回-1
+     * @throws IOException 异常
+     */
+    public int requestStatus(OutputStream output, int n, long timeout) throws IOException {
+        final long count;
+        synchronized (mLock) {
+            count = mReplyCount;
+        }
+        output.write(PrintCommands.realTimeStatusTransmission(n));
+        output.flush();
+        synchronized (mLock) {
+            final long deadline = System.currentTimeMillis() + timeout;
+            while (mReplyCount == count && !mStopped) {
+                final long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0)
+                    return -1;
+                try {
+                    mLock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("interrupted");
+                }
+            }
+            if (mReplyCount == count)
+                return -1;
+            onStatusReply(n, mReply);
+            return mReply;
+        }
+    }
+
+    private void onStatusReply(int n, int b) {
+        switch (n) {
+            case 1:
+                mOffline = (b & 0x08) != 0;
+                if (!mOffline) {
+                    // 缺纸、纸仓盖打开及出错均会脱机，在线即已恢复（不支持自动状态回传的打印机不会另行通知）
+                    mCoverOpen = false;
+                    mPaperEnd = false;
+                    mError = false;
+                }
+                break;
+            case 2:
+                mCoverOpen = (b & 0x04) != 0;
+                mPaperEnd = (b & 0x20) != 0;
+                mError = (b & 0x40) != 0;
+                break;
+            case 3:
+                mError = (b & 0x68) != 0;
+                break;
+            case 4:
+                mPaperNearEnd = (b & 0x0C) != 0;
+                mPaperEnd = (b & 0x60) != 0;
+                break;
+        }
+    }
+
+    /**
+     * 任务开始前检查状态
+     * 打印机不应答时视为不支持回传，此后不再等待
+     *
+     * @param output  输出流
+     * @param timeout 超时（毫秒）
+     * @throws IOException 异常
+     */
+    public void check(OutputStream output, long timeout) throws IOException {
+        synchronized (mLock) {
+            if (!mSupported)
+                return;
+        }
+        final int status = requestStatus(output, 1, timeout);
+        if (status < 0) {
+            synchronized (mLock) {
+                mSupported = false;
+            }
+            return;
+        }
+        if ((status & 0x08) != 0) {
+            // 脱机，查询原因
+            requestStatus(output, 2, timeout);
+            requestStatus(output, 4, timeout);
+        }
+        awaitReady(timeout);
+    }
+
+    /**
+     * 等待打印机就绪
+     *
+     * @param timeout 超时（毫秒）
+     * @throws PrinterStatusException 缺纸、纸仓盖打开、出错或超时
+     */
+    public void awaitReady(long timeout) throws IOException {
+        synchronized (mLock) {
+            final long deadline = System.currentTimeMillis() + timeout;
+            while (true) {
+                if (mPaperEnd)
+                    throw new PrinterStatusException(PrintSocketHolder.ERROR_7, "Paper end");
+                if (mCoverOpen)
+                    throw new PrinterStatusException(PrintSocketHolder.ERROR_8, "Cover open");
+                if (mError)
+                    throw new PrinterStatusException(PrintSocketHolder.ERROR_9, "Printer error");
+                if (mStopped || !mSupported || (!mPaused && !mOffline))
+                    return;
+                final long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0)
+                    throw new PrinterStatusException(PrintSocketHolder.ERROR_10,
+                            "Printer not ready");
+                try {
+                    mLock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("interrupted");
+                }
+            }
+        }
+    }
+
+    /**
+     * 是否暂停发送（收到XOFF，打印机缓存将满）
+     *
+     * @return 是否暂停
+     */
+    public boolean isPaused() {
+        synchronized (mLock) {
+            return mPaused;
+        }
+    }
+
+    /**
+     * 是否脱机
+     *
+     * @return 是否脱机
+     */
+    public boolean isOffline() {
+        synchronized (mLock) {
+            return mOffline;
+        }
+    }
+
+    /**
+     * 是否缺纸
+     *
+     * @return 是否缺纸
+     */
+    public boolean isPaperEnd() {
+        synchronized (mLock) {
+            return mPaperEnd;
+        }
+    }
+
+    /**
+     * 是否纸将尽
+     *
+     * @return 是否纸将尽
+     */
+    public boolean isPaperNearEnd() {
+        synchronized (mLock) {
+            return mPaperNearEnd;
+        }
+    }
+
+    /**
+     * 纸仓盖是否打开
+     *
+     * @return 是否打开
+     */
+    public boolean isCoverOpen() {
+        synchronized (mLock) {
+            return mCoverOpen;
+        }
+    }
+
+    /**
+     * 包装输出流
+     * 每写出一块数据前等待打印机就绪
+     *
+     * @param output    输出流
+     * @param chunkSize 块大小
+     * @param timeout   等待就绪超时（毫秒）
+     * @return 输出流
+     */
+    public OutputStream wrap(OutputStream output, int chunkSize, long timeout) {
+        return new FlowControlOutputStream(output, chunkSize, timeout);
+    }
+
+    private class FlowControlOutputStream extends OutputStream {
+
+        private final OutputStream mOutput;
+        private final int mChunkSize;
+        private final long mTimeout;
+
+        FlowControlOutputStream(OutputStream output, int chunkSize, long timeout) {
+            mOutput = output;
+            mChunkSize = chunkSize;
+            mTimeout = timeout;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            awaitReady(mTimeout);
+            mOutput.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                awaitReady(mTimeout);
+                final int count = Math.min(len, mChunkSize);
+                mOutput.write(b, off, count);
+                off += count;
+                len -= count;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            mOutput.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            mOutput.close();
+        }
+    }
+}
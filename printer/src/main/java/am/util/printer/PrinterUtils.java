@@ -20,7 +20,10 @@ import android.graphics.Bitmap;
 import android.graphics.Color;
 import android.graphics.Matrix;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -227,7 +230,7 @@ public class PrinterUtils {
         // 高度每parting像素进行一次分割
         int time = height % parting == 0 ? height / parting : (height / parting + 1);// 循环打印次数
         for (int t = 0; t < time; t++) {
-            int partHeight = t == time - 1 ? height % parting : parting;// 分段高度
+            int partHeight = Math.min(parting, height - t * parting);// 分段高度
 
             // 高命令
             String heightHexString = Integer.toHexString(partHeight);
@@ -308,25 +311,317 @@ public class PrinterUtils {
     }
 
     /**
-     * 解码图片
+     * 解码图片为光栅位图指令（GS v 0）
+     * 按行批量读取像素并直接按位写入字节数组，不经过字符串转换，
+     * 输出与 {@link #decodeBitmapToDataList(Bitmap, int)} 合并后的数据完全一致。
      *
      * @param image   图片
      * @param parting 高度分割值
      * @return 数据流
      */
-    public static byte[] decodeBitmap(Bitmap image, int parting) {
-        ArrayList<byte[]> data = decodeBitmapToDataList(image, parting);
-        int len = 0;
-        for (byte[] srcArray : data) {
-            len += srcArray.length;
+    public static byte[] decodeBitmapToRaster(Bitmap image, int parting) {
+        return decodeBitmapToRaster(image, parting, null);
+    }
+
+    /**
+     * 解码图片为光栅位图指令（GS v 0）
+     *
+     * @param image     图片
+     * @param parting   高度分割值
+     * @param ditherer  二值化策略，为空时使用 {@link ThresholdDitherer}
+     * @return 数据流
+     */
+    public static byte[] decodeBitmapToRaster(Bitmap image, int parting, PrintDitherer ditherer) {
+        if (parting <= 0 || parting > 255)
+            parting = 255;
+        if (image == null)
+            return null;
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        if (width <= 0 || height <= 0)
+            return null;
+        if (width > 2040) {
+            // 8位9针，宽度限制2040像素
+            Bitmap resizeImage = scaleToMaxRasterWidth(image);
+            if (resizeImage == null)
+                return null;
+            byte[] data = decodeBitmapToRaster(resizeImage, parting, ditherer);
+            resizeImage.recycle();
+            return data;
         }
-        byte[] destArray = new byte[len];
-        int destLen = 0;
-        for (byte[] srcArray : data) {
-            System.arraycopy(srcArray, 0, destArray, destLen, srcArray.length);
-            destLen += srcArray.length;
+        if (ditherer == null)
+            ditherer = new ThresholdDitherer();
+        final int widthBytes = (width + 7) / 8;
+        final int time = (height + parting - 1) / parting;// 循环打印次数
+        final byte[] data = new byte[time * 8 + widthBytes * height];
+        final int[] pixels = new int[width];
+        final boolean hasAlpha = image.hasAlpha();
+        ditherer.start(width);
+        int index = 0;
+        for (int t = 0; t < time; t++) {
+            final int top = t * parting;
+            final int partHeight = Math.min(parting, height - top);// 分段高度
+            index = encodeRasterBand(image, top, partHeight, widthBytes, pixels, hasAlpha,
+                    ditherer, data, index);
         }
-        return destArray;
+        return data;
+    }
+
+    /**
+     * 解码图片为光栅位图指令（GS v 0）
+     * 每个分段（宽高指令及其数据）为一个元素
+     *
+     * @param image    图片
+     * @param parting  高度分割值
+     * @param ditherer 二值化策略，为空时使用 {@link ThresholdDitherer}
+     * @return 数据流
+     */
+    public static ArrayList<byte[]> decodeBitmapToBandList(Bitmap image, int parting,
+                                                           PrintDitherer ditherer) {
+        if (parting <= 0 || parting > 255)
+            parting = 255;
+        if (image == null)
+            return null;
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        if (width <= 0 || height <= 0)
+            return null;
+        if (width > 2040) {
+            Bitmap resizeImage = scaleToMaxRasterWidth(image);
+            if (resizeImage == null)
+                return null;
+            ArrayList<byte[]> data = decodeBitmapToBandList(resizeImage, parting, ditherer);
+            resizeImage.recycle();
+            return data;
+        }
+        if (ditherer == null)
+            ditherer = new ThresholdDitherer();
+        final int widthBytes = (width + 7) / 8;
+        final int time = (height + parting - 1) / parting;
+        final ArrayList<byte[]> data = new ArrayList<>(time);
+        final int[] pixels = new int[width];
+        final boolean hasAlpha = image.hasAlpha();
+        ditherer.start(width);
+        for (int t = 0; t < time; t++) {
+            final int top = t * parting;
+            final int partHeight = Math.min(parting, height - top);
+            final byte[] band = new byte[8 + widthBytes * partHeight];
+            encodeRasterBand(image, top, partHeight, widthBytes, pixels, hasAlpha,
+                    ditherer, band, 0);
+            data.add(band);
+        }
+        return data;
+    }
+
+    /**
+     * 解码图片为光栅位图指令（GS v 0）并逐段写入输出流
+     * 仅复用一个分段大小的缓存，每段编码完成即写出，无需保留整张图片的数据
+     *
+     * @param image    图片
+     * @param parting  高度分割值
+     * @param ditherer 二值化策略，为空时使用 {@link ThresholdDitherer}
+     * @param output   输出流
+     * @return 是否成功解码
+     * @throws IOException 异常
+     */
+    public static boolean decodeBitmapToStream(Bitmap image, int parting, PrintDitherer ditherer,
+                                               OutputStream output) throws IOException {
+        if (parting <= 0 || parting > 255)
+            parting = 255;
+        if (image == null)
+            return false;
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        if (width <= 0 || height <= 0)
+            return false;
+        if (width > 2040) {
+            Bitmap resizeImage = scaleToMaxRasterWidth(image);
+            if (resizeImage == null)
+                return false;
+            try {
+                return decodeBitmapToStream(resizeImage, parting, ditherer, output);
+            } finally {
+                resizeImage.recycle();
+            }
+        }
+        if (ditherer == null)
+            ditherer = new ThresholdDitherer();
+        final int widthBytes = (width + 7) / 8;
+        final int time = (height + parting - 1) / parting;
+        final byte[] band = new byte[8 + widthBytes * Math.min(parting, height)];
+        final int[] pixels = new int[width];
+        final boolean hasAlpha = image.hasAlpha();
+        ditherer.start(width);
+        for (int t = 0; t < time; t++) {
+            final int top = t * parting;
+            final int partHeight = Math.min(parting, height - top);
+            final int length = encodeRasterBand(image, top, partHeight, widthBytes, pixels,
+                    hasAlpha, ditherer, band, 0);
+            output.write(band, 0, length);
+        }
+        return true;
+    }
+
+    /**
+     * 解码图片为列格式位图数据
+     * 供 NV 位图（FS q）及下载位图（GS *）使用：按列排列，每列自上而下每8点一个字节，高位在上；
+     * 宽度补齐为8的倍数，高度补齐为8的倍数
+     *
+     * @param image    图片
+     * @param ditherer 二值化策略，为空时使用 {@link ThresholdDitherer}
+     * @return 位图数据，字节数为 x × y × 8（x、y分别为宽、高点数除以8向上取整）
+     */
+    public static byte[] decodeBitmapToColumnImage(Bitmap image, PrintDitherer ditherer) {
+        if (image == null || image.getWidth() <= 0 || image.getHeight() <= 0)
+            return null;
+        if (ditherer == null)
+            ditherer = new ThresholdDitherer();
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final int widthBytes = (width + 7) / 8;
+        final int heightBytes = (height + 7) / 8;
+        final int[] pixels = new int[width];
+        final boolean hasAlpha = image.hasAlpha();
+        final byte[] rows = new byte[widthBytes * 8];// 8行光栅数据
+        final byte[] data = new byte[widthBytes * 8 * heightBytes];
+        ditherer.start(width);
+        for (int r = 0; r < heightBytes; r++) {
+            Arrays.fill(rows, (byte) 0);
+            final int count = Math.min(8, height - r * 8);
+            for (int i = 0; i < count; i++) {
+                final int y = r * 8 + i;
+                image.getPixels(pixels, 0, width, 0, y, width, 1);
+                ditherer.ditherRow(pixels, width, y, hasAlpha, rows, i * widthBytes);
+            }
+            // 8行转置为每列一个字节
+            for (int c = 0; c < widthBytes * 8; c++) {
+                final int index = c >> 3;
+                final int mask = 0x80 >>> (c & 7);
+                int bits = 0;
+                for (int i = 0; i < 8; i++) {
+                    if ((rows[i * widthBytes + index] & mask) != 0)
+                        bits |= 0x80 >>> i;
+                }
+                data[c * heightBytes + r] = (byte) bits;
+            }
+        }
+        return data;
+    }
+
+    /**
+     * 编码一个光栅位图分段（宽高指令及其数据）
+     *
+     * @param image      图片
+     * @param top        分段起始行
+     * @param partHeight 分段高度
+     * @param widthBytes 每行字节数
+     * @param pixels     行像素缓存
+     * @param hasAlpha   是否含透明通道
+     * @param ditherer   二值化策略
+     * @param out        输出
+     * @param offset     输出起始位置
+     * @return 输出结束位置
+     */
+    static int encodeRasterBand(Bitmap image, int top, int partHeight, int widthBytes,
+                                int[] pixels, boolean hasAlpha, PrintDitherer ditherer,
+                                byte[] out, int offset) {
+        final int index = writeRasterHeader(out, offset, widthBytes, partHeight);
+        return encodeRows(image, top, partHeight, pixels, hasAlpha, ditherer, out, index);
+    }
+
+    /**
+     * 逐行二值化并按位写入
+     *
+     * @param image    图片
+     * @param top      起始行
+     * @param height   行数
+     * @param pixels   行像素缓存
+     * @param hasAlpha 是否含透明通道
+     * @param ditherer 二值化策略
+     * @param out      输出
+     * @param offset   输出起始位置
+     * @return 输出结束位置
+     */
+    static int encodeRows(Bitmap image, int top, int height, int[] pixels, boolean hasAlpha,
+                          PrintDitherer ditherer, byte[] out, int offset) {
+        final int width = image.getWidth();
+        for (int i = 0; i < height; i++) {
+            final int y = top + i;
+            image.getPixels(pixels, 0, width, 0, y, width, 1);
+            offset = ditherer.ditherRow(pixels, width, y, hasAlpha, out, offset);
+        }
+        return offset;
+    }
+
+    /**
+     * 写入光栅位图宽高指令
+     * GS v 0 m xL xH yL yH
+     *
+     * @param out        输出
+     * @param offset     输出起始位置
+     * @param widthBytes 每行字节数
+     * @param height     分段高度
+     * @return 输出结束位置
+     */
+    static int writeRasterHeader(byte[] out, int offset, int widthBytes, int height) {
+        out[offset++] = 0x1D;
+        out[offset++] = 0x76;
+        out[offset++] = 0x30;
+        out[offset++] = 0x00;
+        out[offset++] = (byte) widthBytes;
+        out[offset++] = (byte) (widthBytes >> 8);
+        out[offset++] = (byte) height;
+        out[offset++] = (byte) (height >> 8);
+        return offset;
+    }
+
+    /**
+     * 缩放图片至最大打印宽度
+     *
+     * @param image 图片
+     * @return 缩放后的图片，内存不足时为空
+     */
+    static Bitmap scaleToMaxRasterWidth(Bitmap image) {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final float scale = 2040 / (float) width;
+        Matrix matrix = new Matrix();
+        matrix.postScale(scale, scale);
+        try {
+            return Bitmap.createBitmap(image, 0, 0, width, height, matrix, true);
+        } catch (OutOfMemoryError e) {
+            return null;
+        }
+    }
+
+    /**
+     * 获取像素灰度
+     * 透明像素先与白色叠加
+     *
+     * @param color    像素
+     * @param hasAlpha 是否含透明通道
+     * @return 灰度（0～255）
+     */
+    static int getGray(int color, boolean hasAlpha) {
+        int red = (color >> 16) & 0xFF;
+        int green = (color >> 8) & 0xFF;
+        int blue = color & 0xFF;
+        final int gray = (red * 299 + green * 587 + blue * 114 + 500) / 1000;
+        if (!hasAlpha)
+            return gray;
+        final int alpha = color >>> 24;
+        return 255 - ((255 - gray) * alpha + 127) / 255;
+    }
+
+    /**
+     * 解码图片
+     *
+     * @param image   图片
+     * @param parting 高度分割值
+     * @return 数据流
+     */
+    public static byte[] decodeBitmap(Bitmap image, int parting) {
+        return decodeBitmapToRaster(image, parting);
     }
 
     /**
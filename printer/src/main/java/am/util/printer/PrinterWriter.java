@@ -26,11 +26,18 @@ import android.graphics.drawable.Drawable;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 
 
 /**
  * 打印机写入器
+ * 默认将数据缓存在内存中，通过 {@link #getDataAndReset()} 获取；
+ * 设置输出流或通道后进入流式模式，数据经有限大小的缓存直接写出。
  * Created by Alex on 2016/4/18.
  */
 @SuppressWarnings("all")
@@ -39,7 +46,13 @@ public abstract class PrinterWriter {
     public static final int HEIGHT_PARTING_DEFAULT = 255;
     private static final String CHARSET = "gb2312";
     private ByteArrayOutputStream bos;
+    private PrinterOutputStream mOutput;
     private int heightParting;
+    private PrintImageCache mImageCache;
+    private PrintRasterEncoder mRasterEncoder;
+    private byte[] mLine;
+    private byte[] mRow;
+    private final HashMap<PrinterLogoManager, String> mStoredLogos = new HashMap<>();// 本次打印已写入的Logo
 
     public PrinterWriter() throws IOException {
         this(HEIGHT_PARTING_DEFAULT);
@@ -63,14 +76,13 @@ public abstract class PrinterWriter {
      * @return 是否中文
      */
     public static boolean isChinese(char c) {
-        Character.UnicodeBlock ub = Character.UnicodeBlock.of(c);
-        return ub == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS
-                || ub == Character.UnicodeBlock.CJK_COMPATIBILITY_IDEOGRAPHS
-                || ub == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS_EXTENSION_A
-                || ub == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS_EXTENSION_B
-                || ub == Character.UnicodeBlock.CJK_SYMBOLS_AND_PUNCTUATION
-                || ub == Character.UnicodeBlock.HALFWIDTH_AND_FULLWIDTH_FORMS
-                || ub == Character.UnicodeBlock.GENERAL_PUNCTUATION;
+        // 与按 Character.UnicodeBlock 判断等价，直接比较区间
+        return (c >= 0x4E00 && c <= 0x9FFF)// CJK_UNIFIED_IDEOGRAPHS
+                || (c >= 0xF900 && c <= 0xFAFF)// CJK_COMPATIBILITY_IDEOGRAPHS
+                || (c >= 0x3400 && c <= 0x4DBF)// CJK_UNIFIED_IDEOGRAPHS_EXTENSION_A
+                || (c >= 0x3000 && c <= 0x303F)// CJK_SYMBOLS_AND_PUNCTUATION
+                || (c >= 0xFF00 && c <= 0xFFEF)// HALFWIDTH_AND_FULLWIDTH_FORMS
+                || (c >= 0x2000 && c <= 0x206F);// GENERAL_PUNCTUATION
     }
 
     /**
@@ -79,17 +91,76 @@ public abstract class PrinterWriter {
      * @throws IOException 异常
      */
     public void init() throws IOException {
-        bos = new ByteArrayOutputStream();
+        if (mOutput == null)
+            bos = new ByteArrayOutputStream();
+        mStoredLogos.clear();// ESC @ 清除下载位图
         write(PrinterUtils.initPrinter());
     }
 
+    /**
+     * 设置输出流，进入流式模式
+     * 此前缓存在内存中的数据会先写入该输出流
+     *
+     * @param output 输出流
+     * @throws IOException 异常
+     */
+    public void setOutputStream(OutputStream output) throws IOException {
+        setOutput(output instanceof PrinterOutputStream ? (PrinterOutputStream) output :
+                new PrinterOutputStream(output));
+    }
+
+    /**
+     * 设置输出通道，进入流式模式
+     * 此前缓存在内存中的数据会先写入该通道
+     *
+     * @param channel 输出通道（阻塞模式）
+     * @throws IOException 异常
+     */
+    public void setOutputChannel(WritableByteChannel channel) throws IOException {
+        setOutput(new PrinterOutputStream(channel));
+    }
+
+    private void setOutput(PrinterOutputStream output) throws IOException {
+        mOutput = output;
+        if (bos != null) {
+            if (bos.size() > 0)
+                bos.writeTo(mOutput);
+            bos = null;
+        }
+    }
+
+    /**
+     * 是否为流式模式
+     *
+     * @return 是否为流式模式
+     */
+    public boolean isStreaming() {
+        return mOutput != null;
+    }
+
+    /**
+     * 将缓存的数据写出
+     * 仅流式模式有效
+     *
+     * @throws IOException 异常
+     */
+    public void flush() throws IOException {
+        if (mOutput != null)
+            mOutput.flush();
+    }
+
     /**
      * 获取预打印数据并重置流
+     * 流式模式下数据已写出，仅执行写出并返回空数据
      *
      * @return 预打印数据
      * @throws IOException 异常
      */
     public byte[] getDataAndReset() throws IOException {
+        if (mOutput != null) {
+            mOutput.flush();
+            return new byte[0];
+        }
         byte[] data;
         bos.flush();
         data = bos.toByteArray();
@@ -99,11 +170,16 @@ public abstract class PrinterWriter {
 
     /**
      * 获取预打印数据并关闭流
+     * 流式模式下数据已写出，仅执行写出并返回空数据，不会关闭输出流
      *
      * @return 预打印数据
      * @throws IOException 异常
      */
     public byte[] getDataAndClose() throws IOException {
+        if (mOutput != null) {
+            mOutput.flush();
+            return new byte[0];
+        }
         byte[] data;
         bos.flush();
         data = bos.toByteArray();
@@ -119,9 +195,25 @@ public abstract class PrinterWriter {
      * @throws IOException 异常
      */
     public void write(byte[] data) throws IOException {
+        write(data, 0, data.length);
+    }
+
+    /**
+     * 写入数据
+     *
+     * @param data   数据
+     * @param offset 起始位置
+     * @param length 长度
+     * @throws IOException 异常
+     */
+    public void write(byte[] data, int offset, int length) throws IOException {
+        if (mOutput != null) {
+            mOutput.write(data, offset, length);
+            return;
+        }
         if (bos == null)
             init();
-        bos.write(data);
+        bos.write(data, offset, length);
     }
 
     /**
@@ -209,7 +301,7 @@ public abstract class PrinterWriter {
     public void print(String string, String charsetName) throws IOException {
         if (string == null)
             return;
-        write(string.getBytes(charsetName));
+        write(PrintTextEncoder.get(charsetName).encode(string));
     }
 
     /**
@@ -218,13 +310,13 @@ public abstract class PrinterWriter {
      * @throws IOException 异常
      */
     public void printLine() throws IOException {
-        int length = getLineWidth();
-        String line = "";
-        while (length > 0) {
-            line += "─";
-            length--;
+        if (mLine == null) {
+            final int length = getLineWidth();
+            final char[] line = new char[length > 0 ? length : 0];
+            Arrays.fill(line, '─');
+            mLine = PrintTextEncoder.get(CHARSET).encode(new String(line));
         }
-        print(line);
+        write(mLine);
     }
 
     /**
@@ -256,14 +348,121 @@ public abstract class PrinterWriter {
      * @throws IOException 异常
      */
     public void printInOneLine(String str1, String str2, int textSize, String charsetName) throws IOException {
+        final PrintTextEncoder encoder = PrintTextEncoder.get(charsetName);
         int lineLength = getLineStringWidth(textSize);
-        int needEmpty = lineLength - (getStringWidth(str1) + getStringWidth(str2)) % lineLength;
-        String empty = "";
-        while (needEmpty > 0) {
-            empty += " ";
-            needEmpty--;
+        int needEmpty = lineLength - (encoder.getWidth(str1) + encoder.getWidth(str2)) % lineLength;
+        final byte[] row = getRowBuffer(encoder.getMaxLength(str1.length() + str2.length())
+                + needEmpty);
+        int offset = encoder.encode(str1, 0, str1.length(), row, 0);
+        Arrays.fill(row, offset, offset + needEmpty, (byte) ' ');
+        offset = encoder.encode(str2, 0, str2.length(), row, offset + needEmpty);
+        write(row, 0, offset);
+    }
+
+    /**
+     * 按列输出一行
+     * 超出列宽的内容按列设置换行或截断，换行时输出多行；每行以换行结束，列宽总和不应超过 {@link #getLineStringWidth(int)}
+     *
+     * @param columns 列
+     * @param texts   各列内容，为空时按空字符串处理
+     * @throws IOException 异常
+     */
+    public void printColumns(PrintColumn[] columns, String... texts) throws IOException {
+        printColumns(columns, texts, CHARSET);
+    }
+
+    /**
+     * 按列输出一行
+     *
+     * @param columns     列
+     * @param texts       各列内容，为空时按空字符串处理
+     * @param charsetName 编码方式
+     * @throws IOException 异常
+     */
+    public void printColumns(PrintColumn[] columns, String[] texts, String charsetName)
+            throws IOException {
+        final PrintTextEncoder encoder = PrintTextEncoder.get(charsetName);
+        final int count = columns.length;
+        final int[] positions = new int[count];
+        int capacity = 1;
+        for (PrintColumn column : columns) {
+            capacity += encoder.getMaxLength(column.getWidth() + 1);
+        }
+        final byte[] row = getRowBuffer(capacity);
+        boolean remaining = true;
+        while (remaining) {
+            remaining = false;
+            int offset = 0;
+            int pending = 0;// 尚未写出的空格，行尾不输出
+            for (int i = 0; i < count; i++) {
+                final PrintColumn column = columns[i];
+                final String text = texts != null && i < texts.length && texts[i] != null ?
+                        texts[i] : "";
+                final int start = positions[i];
+                final int length = text.length();
+                final int width = column.getWidth();
+                // 取出本行能容纳的字符，至少一个
+                int end = start;
+                int used = 0;
+                while (end < length) {
+                    final int size = encoder.getCharCount(text, end, length);
+                    final int w = encoder.getWidth(text, end, end + size);
+                    if (used + w > width && end > start)
+                        break;
+                    used += w;
+                    end += size;
+                    if (used >= width)
+                        break;
+                }
+                positions[i] = column.getOverflow() == PrintColumn.OVERFLOW_TRUNCATE ?
+                        length : end;
+                if (positions[i] < length)
+                    remaining = true;
+                if (start >= length) {
+                    pending += width;
+                    continue;
+                }
+                final int padding = Math.max(width - used, 0);
+                final int left;
+                switch (column.getAlign()) {
+                    default:
+                    case PrintColumn.ALIGN_LEFT:
+                        left = 0;
+                        break;
+                    case PrintColumn.ALIGN_CENTER:
+                        left = padding / 2;
+                        break;
+                    case PrintColumn.ALIGN_RIGHT:
+                        left = padding;
+                        break;
+                }
+                pending += left;
+                Arrays.fill(row, offset, offset + pending, (byte) ' ');
+                offset = encoder.encode(text, start, end, row, offset + pending);
+                pending = padding - left;
+            }
+            row[offset++] = '\n';
+            write(row, 0, offset);
         }
-        print(str1 + empty + str2, charsetName);
+    }
+
+    /**
+     * 按列输出多行
+     *
+     * @param columns 列
+     * @param rows    各行内容
+     * @throws IOException 异常
+     */
+    public void printTable(PrintColumn[] columns, List<String[]> rows) throws IOException {
+        for (String[] texts : rows) {
+            printColumns(columns, texts, CHARSET);
+        }
+    }
+
+    private byte[] getRowBuffer(int capacity) {
+        if (mRow == null || mRow.length < capacity)
+            mRow = new byte[Math.max(capacity, 64)];
+        return mRow;
     }
 
     /**
@@ -274,14 +473,6 @@ public abstract class PrinterWriter {
      */
     protected abstract int getLineStringWidth(int textSize);
 
-    private int getStringWidth(String str) {
-        int width = 0;
-        for (char c : str.toCharArray()) {
-            width += isChinese(c) ? 2 : 1;
-        }
-        return width;
-    }
-
     /**
      * 获取图片数据流
      *
@@ -290,12 +481,33 @@ public abstract class PrinterWriter {
      * @return 数据流
      */
     public ArrayList<byte[]> getImageByte(Resources res, int id) {
+        return getImageByte(res, id, null);
+    }
+
+    /**
+     * 获取图片数据流
+     *
+     * @param res      Resources
+     * @param id       资源ID
+     * @param ditherer 二值化策略，为空时使用 {@link ThresholdDitherer}
+     * @return 数据流
+     */
+    public ArrayList<byte[]> getImageByte(Resources res, int id, PrintDitherer ditherer) {
         int maxWidth = getDrawableMaxWidth();
+        final PrintImageCache cache = mImageCache;
+        if (cache != null) {
+            final ArrayList<byte[]> cached = cache.get(id, maxWidth, heightParting, ditherer);
+            if (cached != null)
+                return new ArrayList<>(cached);
+        }
         Bitmap image = scalingBitmap(res, id, maxWidth);
         if (image == null)
             return null;
-        ArrayList<byte[]> data = PrinterUtils.decodeBitmapToDataList(image, heightParting);
+        ArrayList<byte[]> data = PrinterUtils.decodeBitmapToBandList(image, heightParting,
+                ditherer);
         image.recycle();
+        if (cache != null && data != null)
+            cache.put(id, maxWidth, heightParting, ditherer, new ArrayList<>(data));
         return data;
     }
 
@@ -356,11 +568,23 @@ public abstract class PrinterWriter {
      * @return 数据流
      */
     public ArrayList<byte[]> getImageByte(Drawable drawable) {
+        return getImageByte(drawable, null);
+    }
+
+    /**
+     * 获取图片数据流
+     *
+     * @param drawable 图片
+     * @param ditherer 二值化策略，为空时使用 {@link ThresholdDitherer}
+     * @return 数据流
+     */
+    public ArrayList<byte[]> getImageByte(Drawable drawable, PrintDitherer ditherer) {
         int maxWidth = getDrawableMaxWidth();
         Bitmap image = scalingDrawable(drawable, maxWidth);
         if (image == null)
             return null;
-        ArrayList<byte[]> data = PrinterUtils.decodeBitmapToDataList(image, heightParting);
+        ArrayList<byte[]> data = PrinterUtils.decodeBitmapToBandList(image, heightParting,
+                ditherer);
         image.recycle();
         return data;
     }
@@ -407,12 +631,26 @@ public abstract class PrinterWriter {
      * @return 数据流
      */
     public ArrayList<byte[]> getImageByte(Bitmap image) {
+        return getImageByte(image, null);
+    }
+
+    /**
+     * 获取图片数据流
+     * 不会回收传入的图片
+     *
+     * @param image    图片
+     * @param ditherer 二值化策略，为空时使用 {@link ThresholdDitherer}
+     * @return 数据流
+     */
+    public ArrayList<byte[]> getImageByte(Bitmap image, PrintDitherer ditherer) {
         int maxWidth = getDrawableMaxWidth();
         Bitmap scalingImage = scalingBitmap(image, maxWidth);
         if (scalingImage == null)
             return null;
-        ArrayList<byte[]> data = PrinterUtils.decodeBitmapToDataList(image, heightParting);
-        image.recycle();
+        ArrayList<byte[]> data = PrinterUtils.decodeBitmapToBandList(scalingImage, heightParting,
+                ditherer);
+        if (scalingImage != image)
+            scalingImage.recycle();
         return data;
     }
 
@@ -421,19 +659,19 @@ public abstract class PrinterWriter {
      *
      * @param image    图片
      * @param maxWidth 最大宽
-     * @return 缩放后的图片
+     * @return 缩放后的图片，无需缩放时为原图
      */
     private Bitmap scalingBitmap(Bitmap image, int maxWidth) {
         if (image == null || image.getWidth() <= 0 || image.getHeight() <= 0)
             return null;
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        // 精确缩放
+        if (maxWidth <= 0 || width <= maxWidth) {
+            return image;
+        }
         try {
-            final int width = image.getWidth();
-            final int height = image.getHeight();
-            // 精确缩放
-            float scale = 1;
-            if (maxWidth <= 0 || width <= maxWidth) {
-                scale = maxWidth / (float) width;
-            }
+            final float scale = maxWidth / (float) width;
             Matrix matrix = new Matrix();
             matrix.postScale(scale, scale);
             return Bitmap.createBitmap(image, 0, 0, width, height, matrix, true);
@@ -449,6 +687,17 @@ public abstract class PrinterWriter {
      * @return 数据流
      */
     public ArrayList<byte[]> getImageByte(String filePath) {
+        return getImageByte(filePath, (PrintDitherer) null);
+    }
+
+    /**
+     * 获取图片数据流
+     *
+     * @param filePath 图片路径
+     * @param ditherer 二值化策略，为空时使用 {@link ThresholdDitherer}
+     * @return 数据流
+     */
+    public ArrayList<byte[]> getImageByte(String filePath, PrintDitherer ditherer) {
         Bitmap image;
         try {
             int width;
@@ -466,7 +715,141 @@ public abstract class PrinterWriter {
         } catch (OutOfMemoryError | Exception e) {
             return null;
         }
-        return getImageByte(image);
+        if (image == null)
+            return null;
+        ArrayList<byte[]> data = getImageByte(image, ditherer);
+        image.recycle();
+        return data;
+    }
+
+    /**
+     * 写入图片
+     * 逐段编码并写入，流式模式下每段编码完成即发送，无需等待整张图片编码完成；
+     * 设置了图片编码缓存时整张编码后缓存
+     *
+     * @param res      Resources
+     * @param id       资源ID
+     * @param ditherer 二值化策略，为空时使用 {@link ThresholdDitherer}
+     * @return 是否成功
+     * @throws IOException 异常
+     */
+    public boolean printImage(Resources res, int id, PrintDitherer ditherer) throws IOException {
+        if (mImageCache != null) {
+            final ArrayList<byte[]> data = getImageByte(res, id, ditherer);
+            if (data == null)
+                return false;
+            for (byte[] item : data) {
+                write(item);
+            }
+            return true;
+        }
+        Bitmap image = scalingBitmap(res, id, getDrawableMaxWidth());
+        if (image == null)
+            return false;
+        try {
+            return printScaledImage(image, ditherer);
+        } finally {
+            image.recycle();
+        }
+    }
+
+    /**
+     * 写入图片
+     *
+     * @param drawable 图片
+     * @param ditherer 二值化策略，为空时使用 {@link ThresholdDitherer}
+     * @return 是否成功
+     * @throws IOException 异常
+     */
+    public boolean printImage(Drawable drawable, PrintDitherer ditherer) throws IOException {
+        Bitmap image = scalingDrawable(drawable, getDrawableMaxWidth());
+        if (image == null)
+            return false;
+        try {
+            return printScaledImage(image, ditherer);
+        } finally {
+            image.recycle();
+        }
+    }
+
+    /**
+     * 写入图片
+     * 不会回收传入的图片
+     *
+     * @param image    图片
+     * @param ditherer 二值化策略，为空时使用 {@link ThresholdDitherer}
+     * @return 是否成功
+     * @throws IOException 异常
+     */
+    public boolean printImage(Bitmap image, PrintDitherer ditherer) throws IOException {
+        Bitmap scalingImage = scalingBitmap(image, getDrawableMaxWidth());
+        if (scalingImage == null)
+            return false;
+        try {
+            return printScaledImage(scalingImage, ditherer);
+        } finally {
+            if (scalingImage != image)
+                scalingImage.recycle();
+        }
+    }
+
+    /**
+     * 写入图片
+     *
+     * @param filePath 图片路径
+     * @param ditherer 二值化策略，为空时使用 {@link ThresholdDitherer}
+     * @return 是否成功
+     * @throws IOException 异常
+     */
+    public boolean printImage(String filePath, PrintDitherer ditherer) throws IOException {
+        Bitmap image;
+        try {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+            image = BitmapFactory.decodeFile(filePath, options);
+        } catch (OutOfMemoryError | Exception e) {
+            return false;
+        }
+        if (image == null)
+            return false;
+        try {
+            return printImage(image, ditherer);
+        } finally {
+            image.recycle();
+        }
+    }
+
+    private boolean printScaledImage(Bitmap image, PrintDitherer ditherer) throws IOException {
+        final OutputStream output;
+        if (mOutput != null) {
+            output = mOutput;
+        } else {
+            if (bos == null)
+                init();
+            output = bos;
+        }
+        if (mRasterEncoder != null)
+            return mRasterEncoder.encode(image, ditherer, output);
+        return PrinterUtils.decodeBitmapToStream(image, heightParting, ditherer, output);
+    }
+
+    /**
+     * 写入打印机存储的Logo
+     * 设备未存有该Logo时先写入存储区，此后只发送打印指令；本次打印中已写入过时直接打印
+     *
+     * @param manager Logo管理
+     * @param device  设备标识
+     * @param logo    Logo编号
+     * @throws IOException 异常
+     */
+    public void printLogo(PrinterLogoManager manager, String device, int logo) throws IOException {
+        final String hash = manager.getStoredHash(logo);
+        if (hash.equals(mStoredLogos.get(manager))) {
+            write(manager.getPrintOnlyData(logo));
+            return;
+        }
+        write(manager.getPrintData(device, logo));
+        mStoredLogos.put(manager, hash);
     }
 
     /**
@@ -496,6 +879,26 @@ public abstract class PrinterWriter {
         write(PrinterUtils.feedPaperCutPartial());
     }
 
+    /**
+     * 设置图片编码缓存
+     * 设置后按资源ID获取或写入的图片优先使用缓存，多个写入器可共用同一缓存
+     *
+     * @param cache 缓存，为null时不缓存
+     */
+    public void setImageCache(PrintImageCache cache) {
+        mImageCache = cache;
+    }
+
+    /**
+     * 设置图片编码器
+     * 设置后 printImage 使用该编码器（多线程分段编码或图形指令），分段高度由编码器决定
+     *
+     * @param encoder 编码器，为null时单线程按高度分割值编码
+     */
+    public void setRasterEncoder(PrintRasterEncoder encoder) {
+        mRasterEncoder = encoder;
+    }
+
     /**
      * 获取图片打印高度分割值
      *
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2015 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.printer;
+
+/**
+ * 阈值二值化
+ * 透明像素先与白色叠加，红绿蓝均高于阈值为白色，其余黑色
+ * Created by Alex on 2026/10/17.
+ */
+@SuppressWarnings("all")
+public class ThresholdDitherer implements PrintDitherer {
+
+    public static final int THRESHOLD_DEFAULT = 160;
+    private final int mThreshold;
+
+    public ThresholdDitherer() {
+        this(THRESHOLD_DEFAULT);
+    }
+
+    public ThresholdDitherer(int threshold) {
+        mThreshold = threshold;
+    }
+
+    @Override
+    public void start(int width) {
+    }
+
+    @Override
+    public int ditherRow(int[] pixels, int width, int y, boolean hasAlpha,
+                         byte[] out, int offset) {
+        final int threshold = mThreshold;
+        int bits = 0;
+        for (int j = 0; j < width; j++) {
+            final int color = pixels[j];
+            int red = (color >> 16) & 0xFF;
+            int green = (color >> 8) & 0xFF;
+            int blue = color & 0xFF;
+            if (hasAlpha) {
+                final float alpha = (color >>> 24) / 255.0f;
+                red = 0xFF + (int) Math.ceil((red - 0xFF) * alpha);
+                green = 0xFF + (int) Math.ceil((green - 0xFF) * alpha);
+                blue = 0xFF + (int) Math.ceil((blue - 0xFF) * alpha);
+            }
+            if (!(red > threshold && green > threshold && blue > threshold))
+                bits |= 0x80 >>> (j & 7);
+            if ((j & 7) == 7) {
+                out[offset++] = (byte) bits;
+                bits = 0;
+            }
+        }
+        if ((width & 7) != 0)
+            out[offset++] = (byte) bits;
+        return offset;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ThresholdDitherer && ((ThresholdDitherer) o).mThreshold == mThreshold;
+    }
+
+    @Override
+    public int hashCode() {
+        return mThreshold;
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2015 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.security;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.NoSuchAlgorithmException;
+import java.security.spec.AlgorithmParameterSpec;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.ShortBufferException;
+
+/**
+ * 加密解密上下文
+ * 密钥只解析一次，每个线程持有一个已初始化的Cipher，doFinal后Cipher回到初始化后的状态，可直接用于下一条数据；
+ * 适用于大量短数据使用同一密钥、同一参数加密解密的场景，省去每次查找实现、解析密钥及初始化的开销。
+ * 不适用于每次加密必须更换IV的模式（如GCM）。
+ * 由 {@link AESUtil}、{@link DESedeUtil}、{@link RSAUtil} 的 createContext 系列方法创建。
+ * Created by Alex on 2026/10/17.
+ */
+@SuppressWarnings("all")
+public class CipherContext {
+
+    private final int mMode;
+    private final String mTransformation;
+    private final Key mKey;
+    private final AlgorithmParameterSpec mParams;
+    private final ThreadLocal<Cipher> mCiphers = new ThreadLocal<>();
+
+    /**
+     * 构造
+     * 构造时即创建并初始化当前线程的Cipher，转换或密钥无效时直接抛出异常
+     *
+     * @param mode           模式，{@link Cipher#ENCRYPT_MODE} 或 {@link Cipher#DECRYPT_MODE}
+     * @param transformation 转换
+     * @param key            密钥
+     * @param params         参数，可为null
+     * @throws NoSuchAlgorithmException           异常
+     * @throws NoSuchPaddingException             异常
+     * @throws InvalidKeyException                异常
+     * @throws InvalidAlgorithmParameterException 异常
+     */
+    public CipherContext(int mode, String transformation, Key key, AlgorithmParameterSpec params)
+            throws NoSuchAlgorithmException,
+            NoSuchPaddingException,
+            InvalidKeyException,
+            InvalidAlgorithmParameterException {
+        mMode = mode;
+        mTransformation = transformation;
+        mKey = key;
+        mParams = params;
+        mCiphers.set(createCipher());
+    }
+
+    private Cipher createCipher() throws
+            NoSuchAlgorithmException,
+            NoSuchPaddingException,
+            InvalidKeyException,
+            InvalidAlgorithmParameterException {
+        final Cipher cipher = Cipher.getInstance(mTransformation);
+        if (mParams == null)
+            cipher.init(mMode, mKey);
+        else
+            cipher.init(mMode, mKey, mParams);
+        return cipher;
+    }
+
+    private Cipher getCipher() {
+        Cipher cipher = mCiphers.get();
+        if (cipher == null) {
+            try {
+                cipher = createCipher();
+            } catch (GeneralSecurityException e) {
+                // 构造时已校验过
+                throw new IllegalStateException(e);
+            }
+            mCiphers.set(cipher);
+        }
+        return cipher;
+    }
+
+    /**
+     * 出错后Cipher状态未知，丢弃后下次重新创建
+     */
+    private void discard() {
+        mCiphers.remove();
+    }
+
+    /**
+     * 获取模式
+     *
+     * @return {@link Cipher#ENCRYPT_MODE} 或 {@link Cipher#DECRYPT_MODE}
+     */
+    public int getMode() {
+        return mMode;
+    }
+
+    /**
+     * 获取输出长度
+     * 用于预先分配输出数组，解密时为上限
+     *
+     * @param inputLength 输入长度
+     * @return 输出长度
+     */
+    public int getOutputSize(int inputLength) {
+        return getCipher().getOutputSize(inputLength);
+    }
+
+    /**
+     * 加密或解密
+     *
+     * @param input 输入
+     * @return 输出
+     * @throws IllegalBlockSizeException 异常
+     * @throws BadPaddingException       异常
+     */
+    public byte[] doFinal(byte[] input) throws
+            IllegalBlockSizeException,
+            BadPaddingException {
+        return doFinal(input, 0, input.length);
+    }
+
+    /**
+     * 加密或解密
+     *
+     * @param input  输入
+     * @param offset 输入起始位置
+     * @param length 输入长度
+     * @return 输出
+     * @throws IllegalBlockSizeException 异常
+     * @throws BadPaddingException       异常
+     */
+    public byte[] doFinal(byte[] input, int offset, int length) throws
+            IllegalBlockSizeException,
+            BadPaddingException {
+        final Cipher cipher = getCipher();
+        try {
+            return cipher.doFinal(input, offset, length);
+        } catch (IllegalBlockSizeException | BadPaddingException | RuntimeException e) {
+            discard();
+            throw e;
+        }
+    }
+
+    /**
+     * 加密或解密到调用方提供的数组
+     * 不分配输出数组，输出数组长度应不小于 {@link #getOutputSize(int)}
+     *
+     * @param input        输入
+     * @param inputOffset  输入起始位置
+     * @param inputLength  输入长度
+     * @param output       输出
+     * @param outputOffset 输出起始位置
+     * @return 输出长度
+     * @throws ShortBufferException      输出数组不足，Cipher状态不变，可换用更大的数组重试
+     * @throws IllegalBlockSizeException 异常
+     * @throws BadPaddingException       异常
+     */
+    public int doFinal(byte[] input, int inputOffset, int inputLength, byte[] output,
+                       int outputOffset) throws
+            ShortBufferException,
+            IllegalBlockSizeException,
+            BadPaddingException {
+        final Cipher cipher = getCipher();
+        try {
+            return cipher.doFinal(input, inputOffset, inputLength, output, outputOffset);
+        } catch (ShortBufferException e) {
+            throw e;
+        } catch (IllegalBlockSizeException | BadPaddingException | RuntimeException e) {
+            discard();
+            throw e;
+        }
+    }
+
+    /**
+     * 加密或解密到调用方提供的缓冲
+     * 读取输入缓冲的剩余数据，写入输出缓冲的当前位置，两者位置随之前移；
+     * 两者均为直接缓冲或均为数组缓冲时不分配中间数组
+     *
+     * @param input  输入
+     * @param output 输出，剩余空间应不小于 {@link #getOutputSize(int)}
+     * @return 输出长度
+     * @throws ShortBufferException      输出缓冲不足，Cipher状态不变，可换用更大的缓冲重试
+     * @throws IllegalBlockSizeException 异常
+     * @throws BadPaddingException       异常
+     */
+    public int doFinal(ByteBuffer input, ByteBuffer output) throws
+            ShortBufferException,
+            IllegalBlockSizeException,
+            BadPaddingException {
+        final Cipher cipher = getCipher();
+        try {
+            return cipher.doFinal(input, output);
+        } catch (ShortBufferException e) {
+            throw e;
+        } catch (IllegalBlockSizeException | BadPaddingException | RuntimeException e) {
+            discard();
+            throw e;
+        }
+    }
+
+    /**
+     * 批量加密或解密
+     *
+     * @param inputs 输入
+     * @return 输出，与输入一一对应
+     * @throws IllegalBlockSizeException 异常
+     * @throws BadPaddingException       异常
+     */
+    public byte[][] doFinal(byte[][] inputs) throws
+            IllegalBlockSizeException,
+            BadPaddingException {
+        final Cipher cipher = getCipher();
+        final byte[][] outputs = new byte[inputs.length][];
+        try {
+            for (int i = 0; i < inputs.length; i++) {
+                outputs[i] = cipher.doFinal(inputs[i]);
+            }
+        } catch (IllegalBlockSizeException | BadPaddingException | RuntimeException e) {
+            discard();
+            throw e;
+        }
+        return outputs;
+    }
+
+    /**
+     * 批量加密或解密到调用方提供的数组
+     * 输出依次连续写入，每条输出的长度写入lengths，不分配任何数组
+     *
+     * @param inputs       输入
+     * @param output       输出，长度应不小于各条输入 {@link #getOutputSize(int)} 之和
+     * @param outputOffset 输出起始位置
+     * @param lengths      各条输出的长度，长度应不小于输入条数
+     * @return 输出总长度
+     * @throws ShortBufferException      输出数组不足，此前的输出已写入
+     * @throws IllegalBlockSizeException 异常
+     * @throws BadPaddingException       异常
+     */
+    public int doFinal(byte[][] inputs, byte[] output, int outputOffset, int[] lengths) throws
+            ShortBufferException,
+            IllegalBlockSizeException,
+            BadPaddingException {
+        if (lengths.length < inputs.length)
+            throw new IllegalArgumentException("lengths is shorter than inputs");
+        final Cipher cipher = getCipher();
+        int position = outputOffset;
+        try {
+            for (int i = 0; i < inputs.length; i++) {
+                final byte[] input = inputs[i];
+                final int length = cipher.doFinal(input, 0, input.length, output, position);
+                lengths[i] = length;
+                position += length;
+            }
+        } catch (ShortBufferException e) {
+            throw e;
+        } catch (IllegalBlockSizeException | BadPaddingException | RuntimeException e) {
+            discard();
+            throw e;
+        }
+        return position - outputOffset;
+    }
+}
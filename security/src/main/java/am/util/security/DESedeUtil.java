@@ -16,6 +16,7 @@
 
 package am.util.security;
 
+import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
@@ -100,6 +101,31 @@ public class DESedeUtil {
         return cipher.doFinal(encrypted);
     }
 
+    /**
+     * 创建加密解密上下文
+     * 与 {@link #encrypt(byte[], byte[])}、{@link #decrypt(byte[], byte[])} 结果相同，
+     * 密钥只解析一次，Cipher按线程复用，适用于大量数据使用同一密钥的场景
+     *
+     * @param mode 模式，{@link Cipher#ENCRYPT_MODE} 或 {@link Cipher#DECRYPT_MODE}
+     * @param key  密钥字节
+     * @return 上下文
+     * @throws NoSuchAlgorithmException           异常
+     * @throws NoSuchPaddingException             异常
+     * @throws InvalidKeyException                异常
+     * @throws InvalidKeySpecException            异常
+     * @throws InvalidAlgorithmParameterException 异常
+     */
+    public static CipherContext createContext(int mode, byte[] key) throws
+            NoSuchAlgorithmException,
+            NoSuchPaddingException,
+            InvalidKeyException,
+            InvalidKeySpecException,
+            InvalidAlgorithmParameterException {
+        SecretKey secureKey = SecretKeyFactory.getInstance(ALGORITHM)
+                .generateSecret(new DESedeKeySpec(key));// 128 长度的Key不支持
+        return new CipherContext(mode, TRANSFORMATION, secureKey, null);
+    }
+
     /**
      * 生成密钥
      *
@@ -0,0 +1,507 @@
+/*
+ * Copyright (C) 2015 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.security;
+
+import android.os.Build;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * 分段文件加密
+ * 文件按固定大小分段，每段单独以 AES/GCM 加密并带有校验标签，可多线程并行加密解密，也可只解密任意区间；
+ * 文件格式：文件头 + 各段（密文 + 16字节标签），文件头依次为：
+ * 标识“AMFC”（4字节）、版本（1字节）、随机盐（32字节）、随机前缀（7字节）、分段大小（4字节）、明文长度（8字节）。
+ * 每个文件的AES密钥由传入的密钥及随机盐经 HKDF-SHA256 派生，长度与传入的密钥相同，
+ * 同一密钥加密大量文件时也不会出现密钥与IV同时重复（仅靠7字节随机前缀时约六千个文件即超出建议的碰撞概率）；
+ * 每段的IV为 随机前缀 + 段序号（4字节）+ 是否为最后一段（1字节），文件头作为每段的附加认证数据，
+ * 段被替换、调换顺序、截断或文件头被修改均无法通过校验。
+ * 仍可解密版本1（无随机盐，直接使用传入的密钥）的文件。
+ * 解密失败时已写入的输出不可信，应删除。
+ * 需要 Android 4.4 及以上（GCMParameterSpec、Cipher.updateAAD）。
+ * Created by Alex on 2026/10/17.
+ */
+@SuppressWarnings("all")
+public class FileCipher {
+
+    public static final int CHUNK_SIZE_DEFAULT = 64 * 1024;
+    public static final int CHUNK_SIZE_MIN = 1024;
+    public static final int CHUNK_SIZE_MAX = 16 * 1024 * 1024;
+    public static final int HEADER_SIZE = 56;// 当前版本
+    public static final int TAG_SIZE = 16;
+    private static final String ALGORITHM = "AES";
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final byte[] MAGIC = {'A', 'M', 'F', 'C'};
+    private static final byte VERSION = 2;
+    private static final byte VERSION_1 = 1;
+    private static final int HEADER_SIZE_V1 = 24;
+    private static final int SALT_SIZE = 32;
+    private static final int PREFIX_SIZE = 7;
+    private static final int IV_SIZE = 12;
+    private static final String HKDF_ALGORITHM = "HmacSHA256";
+    private static final byte[] HKDF_INFO = {'A', 'M', 'F', 'C', 'k', 'e', 'y'};
+    private final SecretKeySpec mKey;
+    private final int mChunkSize;
+    private final int mThreads;
+    private final SecureRandom mRandom;
+
+    public FileCipher(byte[] key) {
+        this(key, CHUNK_SIZE_DEFAULT, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * 构造
+     *
+     * @param key       AES密钥字节（16、24或32字节）
+     * @param chunkSize 加密时的分段大小，解密时以文件头为准
+     * @param threads   并行线程数，小于等于1时在调用线程中处理
+     */
+    public FileCipher(byte[] key, int chunkSize, int threads) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT)
+            throw new UnsupportedOperationException("Requires Android 4.4 or above");
+        if (chunkSize < CHUNK_SIZE_MIN || chunkSize > CHUNK_SIZE_MAX)
+            throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+        if (key.length != 16 && key.length != 24 && key.length != 32)
+            throw new IllegalArgumentException("Invalid key size: " + key.length);
+        mKey = new SecretKeySpec(key, ALGORITHM);
+        mChunkSize = chunkSize;
+        mThreads = Math.max(1, threads);
+        //修复OpenSSL的PRNG问题(在4.3及以下版本需要)
+        PRNGFixes.apply();
+        mRandom = new SecureRandom();
+    }
+
+    /**
+     * 加密文件
+     *
+     * @param source 明文文件
+     * @param target 密文文件
+     * @throws IOException              异常
+     * @throws GeneralSecurityException 异常
+     */
+    public void encrypt(File source, File target) throws IOException, GeneralSecurityException {
+        final RandomAccessFile input = new RandomAccessFile(source, "r");
+        try {
+            final RandomAccessFile output = new RandomAccessFile(target, "rw");
+            try {
+                encrypt(input.getChannel(), output.getChannel());
+            } finally {
+                output.close();
+            }
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * 解密文件
+     *
+     * @param source 密文文件
+     * @param target 明文文件
+     * @throws IOException              文件格式错误或读写异常
+     * @throws GeneralSecurityException 校验失败等异常
+     */
+    public void decrypt(File source, File target) throws IOException, GeneralSecurityException {
+        final RandomAccessFile input = new RandomAccessFile(source, "r");
+        try {
+            final RandomAccessFile output = new RandomAccessFile(target, "rw");
+            try {
+                decrypt(input.getChannel(), output.getChannel());
+            } finally {
+                output.close();
+            }
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * 加密
+     * 按位置读写，不改变通道的位置
+     *
+     * @param source 明文，从位置0读取到末尾
+     * @param target 密文，从位置0写入，多余部分截断
+     * @throws IOException              异常
+     * @throws GeneralSecurityException 异常
+     */
+    public void encrypt(FileChannel source, FileChannel target)
+            throws IOException, GeneralSecurityException {
+        final byte[] salt = new byte[SALT_SIZE];
+        mRandom.nextBytes(salt);
+        final byte[] prefix = new byte[PREFIX_SIZE];
+        mRandom.nextBytes(prefix);
+        final Header header = new Header(salt, prefix, mChunkSize, source.size());
+        if (header.getChunkCount() > 0xFFFFFFFFL)
+            throw new IOException("File too large for chunk size " + mChunkSize);
+        target.truncate(header.getEncryptedSize());
+        writeFully(target, ByteBuffer.wrap(header.mBytes), 0);
+        run(header, source, target, true);
+    }
+
+    /**
+     * 解密
+     * 按位置读写，不改变通道的位置
+     *
+     * @param source 密文
+     * @param target 明文，从位置0写入，多余部分截断
+     * @throws IOException              文件格式错误或读写异常
+     * @throws GeneralSecurityException 校验失败等异常
+     */
+    public void decrypt(FileChannel source, FileChannel target)
+            throws IOException, GeneralSecurityException {
+        final Header header = Header.read(source);
+        target.truncate(header.mLength);
+        run(header, source, target, false);
+    }
+
+    /**
+     * 解密区间
+     * 只读取并校验区间所在的段
+     *
+     * @param source   密文
+     * @param position 明文起始位置
+     * @param buffer   输出
+     * @param offset   输出起始位置
+     * @param length   长度
+     * @return 解密的长度，起始位置不小于明文长度时为-1
+     * @throws IOException              文件格式错误或读写异常
+     * @throws GeneralSecurityException 校验失败等异常
+     */
+    public int decrypt(FileChannel source, long position, byte[] buffer, int offset, int length)
+            throws IOException, GeneralSecurityException {
+        if (position < 0 || offset < 0 || length < 0 || offset + length > buffer.length)
+            throw new IndexOutOfBoundsException();
+        final Header header = Header.read(source);
+        if (position >= header.mLength)
+            return -1;
+        length = (int) Math.min(length, header.mLength - position);
+        final Worker worker = new Worker(header, getKey(header), source, null, false);
+        long index = position / header.mChunkSize;
+        int done = 0;
+        while (done < length) {
+            final int size = worker.decrypt(index);
+            final int skip = (int) (position + done - index * header.mChunkSize);
+            final int count = Math.min(size - skip, length - done);
+            System.arraycopy(worker.mOutput, skip, buffer, offset + done, count);
+            done += count;
+            index++;
+        }
+        return done;
+    }
+
+    /**
+     * 获取明文长度
+     *
+     * @param source 密文
+     * @return 明文长度
+     * @throws IOException 文件格式错误或读取异常
+     */
+    public static long getPlaintextSize(FileChannel source) throws IOException {
+        return Header.read(source).mLength;
+    }
+
+    private void run(Header header, FileChannel source, FileChannel target, boolean encrypt)
+            throws IOException, GeneralSecurityException {
+        final long chunks = header.getChunkCount();
+        final int threads = (int) Math.min(mThreads, chunks);
+        final AtomicLong next = new AtomicLong();
+        final SecretKeySpec key = getKey(header);
+        if (threads <= 1) {
+            new Worker(header, key, source, target, encrypt).process(next, chunks);
+            return;
+        }
+        final Worker[] workers = new Worker[threads];
+        final Thread[] helpers = new Thread[threads - 1];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(header, key, source, target, encrypt);
+        }
+        for (int i = 0; i < helpers.length; i++) {
+            final Worker worker = workers[i + 1];
+            helpers[i] = new Thread("FileCipher-" + i) {
+                @Override
+                public void run() {
+                    worker.run(next, chunks);
+                }
+            };
+            helpers[i].start();
+        }
+        workers[0].run(next, chunks);
+        boolean interrupted = false;
+        for (Thread helper : helpers) {
+            while (true) {
+                try {
+                    helper.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    next.set(chunks);// 尽快结束
+                }
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        for (Worker worker : workers) {
+            worker.rethrow();
+        }
+    }
+
+    /**
+     * 获取文件密钥
+     * HKDF-SHA256（RFC 5869），以文件头中的随机盐提取，派生与传入密钥等长的密钥（不超过一个输出块）；
+     * 版本1的文件直接使用传入的密钥
+     *
+     * @param header 文件头
+     * @return 文件密钥
+     */
+    private SecretKeySpec getKey(Header header) throws GeneralSecurityException {
+        if (header.mSalt == null)
+            return mKey;
+        final Mac mac = Mac.getInstance(HKDF_ALGORITHM);
+        mac.init(new SecretKeySpec(header.mSalt, HKDF_ALGORITHM));
+        final byte[] master = mKey.getEncoded();
+        final byte[] prk = mac.doFinal(master);
+        mac.init(new SecretKeySpec(prk, HKDF_ALGORITHM));
+        mac.update(HKDF_INFO);
+        mac.update((byte) 1);
+        final byte[] okm = mac.doFinal();
+        final SecretKeySpec key = new SecretKeySpec(okm, 0, master.length, ALGORITHM);
+        Arrays.fill(master, (byte) 0);
+        Arrays.fill(prk, (byte) 0);
+        Arrays.fill(okm, (byte) 0);
+        return key;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, position);
+            if (read < 0)
+                throw new IOException("Unexpected end of file");
+            position += read;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * 文件头
+     */
+    private static class Header {
+
+        private final byte[] mBytes;
+        private final byte[] mSalt;// 版本1为null
+        private final byte[] mPrefix;
+        private final int mChunkSize;
+        private final long mLength;
+
+        Header(byte[] salt, byte[] prefix, int chunkSize, long length) {
+            mSalt = salt;
+            mPrefix = prefix;
+            mChunkSize = chunkSize;
+            mLength = length;
+            final ByteBuffer buffer;
+            if (salt == null) {
+                buffer = ByteBuffer.allocate(HEADER_SIZE_V1);
+                buffer.put(MAGIC).put(VERSION_1);
+            } else {
+                buffer = ByteBuffer.allocate(HEADER_SIZE);
+                buffer.put(MAGIC).put(VERSION).put(salt);
+            }
+            buffer.put(prefix).putInt(chunkSize).putLong(length);
+            mBytes = buffer.array();
+        }
+
+        static Header read(FileChannel channel) throws IOException {
+            final ByteBuffer start = ByteBuffer.allocate(MAGIC.length + 1);
+            if (channel.size() < HEADER_SIZE_V1)
+                throw new IOException("Not an encrypted file");
+            readFully(channel, start, 0);
+            start.flip();
+            for (byte b : MAGIC) {
+                if (start.get() != b)
+                    throw new IOException("Not an encrypted file");
+            }
+            final byte version = start.get();
+            if (version != VERSION && version != VERSION_1)
+                throw new IOException("Unsupported version");
+            final int size = version == VERSION ? HEADER_SIZE : HEADER_SIZE_V1;
+            if (channel.size() < size)
+                throw new IOException("Not an encrypted file");
+            final ByteBuffer buffer = ByteBuffer.allocate(size - start.capacity());
+            readFully(channel, buffer, start.capacity());
+            buffer.flip();
+            byte[] salt = null;
+            if (version == VERSION) {
+                salt = new byte[SALT_SIZE];
+                buffer.get(salt);
+            }
+            final byte[] prefix = new byte[PREFIX_SIZE];
+            buffer.get(prefix);
+            final int chunkSize = buffer.getInt();
+            final long length = buffer.getLong();
+            if (chunkSize < CHUNK_SIZE_MIN || chunkSize > CHUNK_SIZE_MAX || length < 0)
+                throw new IOException("Corrupted header");
+            final Header header = new Header(salt, prefix, chunkSize, length);
+            if (channel.size() != header.getEncryptedSize())
+                throw new IOException("Truncated or padded file");
+            return header;
+        }
+
+        /**
+         * 段数，空文件也有一个空段用于校验
+         */
+        long getChunkCount() {
+            return Math.max(1, (mLength + mChunkSize - 1) / mChunkSize);
+        }
+
+        long getEncryptedSize() {
+            return mBytes.length + mLength + getChunkCount() * TAG_SIZE;
+        }
+
+        int getChunkLength(long index) {
+            return (int) Math.min(mChunkSize, mLength - index * mChunkSize);
+        }
+
+        long getPlainPosition(long index) {
+            return index * mChunkSize;
+        }
+
+        long getEncryptedPosition(long index) {
+            return mBytes.length + index * ((long) mChunkSize + TAG_SIZE);
+        }
+
+        void fillIv(byte[] iv, long index) {
+            System.arraycopy(mPrefix, 0, iv, 0, PREFIX_SIZE);
+            iv[PREFIX_SIZE] = (byte) (index >>> 24);
+            iv[PREFIX_SIZE + 1] = (byte) (index >>> 16);
+            iv[PREFIX_SIZE + 2] = (byte) (index >>> 8);
+            iv[PREFIX_SIZE + 3] = (byte) index;
+            iv[PREFIX_SIZE + 4] = (byte) (index == getChunkCount() - 1 ? 1 : 0);
+        }
+    }
+
+    /**
+     * 处理线程，各自持有Cipher及缓冲
+     */
+    private class Worker {
+
+        private final Header mHeader;
+        private final SecretKeySpec mFileKey;
+        private final FileChannel mSource;
+        private final FileChannel mTarget;
+        private final boolean mEncrypt;
+        private final Cipher mCipher;
+        private final byte[] mInput;
+        private final byte[] mOutput;
+        private final byte[] mIv = new byte[IV_SIZE];
+        private volatile Throwable mError;
+
+        Worker(Header header, SecretKeySpec key, FileChannel source, FileChannel target,
+               boolean encrypt) throws GeneralSecurityException {
+            mHeader = header;
+            mFileKey = key;
+            mSource = source;
+            mTarget = target;
+            mEncrypt = encrypt;
+            mCipher = Cipher.getInstance(TRANSFORMATION);
+            mInput = new byte[header.mChunkSize + TAG_SIZE];
+            mOutput = new byte[header.mChunkSize + TAG_SIZE];
+        }
+
+        void run(AtomicLong next, long chunks) {
+            try {
+                process(next, chunks);
+            } catch (Throwable t) {
+                // 包括Error（如内存不足），否则该线程领取的段未处理而调用方仍以为成功
+                mError = t;
+                next.set(chunks);// 其他线程停止领取
+            }
+        }
+
+        void rethrow() throws IOException, GeneralSecurityException {
+            final Throwable error = mError;
+            if (error == null)
+                return;
+            if (error instanceof IOException)
+                throw (IOException) error;
+            if (error instanceof GeneralSecurityException)
+                throw (GeneralSecurityException) error;
+            if (error instanceof RuntimeException)
+                throw (RuntimeException) error;
+            if (error instanceof Error)
+                throw (Error) error;
+            throw new RuntimeException(error);
+        }
+
+        void process(AtomicLong next, long chunks) throws IOException, GeneralSecurityException {
+            long index;
+            while ((index = next.getAndIncrement()) < chunks) {
+                if (mEncrypt)
+                    encrypt(index);
+                else
+                    writeFully(mTarget, ByteBuffer.wrap(mOutput, 0, decrypt(index)),
+                            mHeader.getPlainPosition(index));
+            }
+        }
+
+        private void init(int mode, long index) throws GeneralSecurityException {
+            mHeader.fillIv(mIv, index);
+            mCipher.init(mode, mFileKey, new GCMParameterSpec(TAG_SIZE * 8, mIv));
+            mCipher.updateAAD(mHeader.mBytes);
+        }
+
+        private void encrypt(long index) throws IOException, GeneralSecurityException {
+            final int length = mHeader.getChunkLength(index);
+            readFully(mSource, ByteBuffer.wrap(mInput, 0, length),
+                    mHeader.getPlainPosition(index));
+            init(Cipher.ENCRYPT_MODE, index);
+            final int size = mCipher.doFinal(mInput, 0, length, mOutput, 0);
+            writeFully(mTarget, ByteBuffer.wrap(mOutput, 0, size),
+                    mHeader.getEncryptedPosition(index));
+        }
+
+        /**
+         * 解密一段到 mOutput
+         *
+         * @return 明文长度
+         */
+        int decrypt(long index) throws IOException, GeneralSecurityException {
+            final int length = mHeader.getChunkLength(index) + TAG_SIZE;
+            readFully(mSource, ByteBuffer.wrap(mInput, 0, length),
+                    mHeader.getEncryptedPosition(index));
+            init(Cipher.DECRYPT_MODE, index);
+            return mCipher.doFinal(mInput, 0, length, mOutput, 0);
+        }
+    }
+}
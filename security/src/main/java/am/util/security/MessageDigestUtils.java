@@ -18,9 +18,14 @@ package am.util.security;
 
 import android.os.Build;
 
-import java.math.BigInteger;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 信息摘要工具类
@@ -28,6 +33,17 @@ import java.security.NoSuchAlgorithmException;
  */
 @SuppressWarnings("all")
 public class MessageDigestUtils {
+
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+    private static final char[] HEX_TABLE = new char[512];// 每个字节对应的两个十六进制字符
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            HEX_TABLE[i * 2] = DIGITS[i >>> 4];
+            HEX_TABLE[i * 2 + 1] = DIGITS[i & 0x0F];
+        }
+    }
+
     /**
      * 获取信息摘要
      *
@@ -117,19 +133,11 @@ public class MessageDigestUtils {
      * @return MD5
      */
     public static String getMD5String(byte[] src, int length) {
-        final String md5 = new BigInteger(1, getMD5(src)).toString(16);
-        final StringBuilder builder = new StringBuilder();
-        if (md5.length() < 32) {
-            final int number = 32 - md5.length();
-            for (int i = 0; i < number; i++) {
-                builder.append("0");
-            }
+        final String md5 = toHexString(getMD5(src));
+        if (md5 != null && length == 16) {
+            return md5.substring(8, 24);
         }
-        builder.append(md5);
-        if (length == 16) {
-            return builder.toString().substring(8, 24);
-        }
-        return builder.toString();
+        return md5;
     }
 
     /**
@@ -149,16 +157,7 @@ public class MessageDigestUtils {
      * @return SHA-1
      */
     public static String getSHA1String(byte[] src) {
-        final String sha1 = new BigInteger(1, getSHA1(src)).toString(16);
-        final StringBuilder builder = new StringBuilder();
-        if (sha1.length() < 40) {
-            final int number = 40 - sha1.length();
-            for (int i = 0; i < number; i++) {
-                builder.append("0");
-            }
-        }
-        builder.append(sha1);
-        return builder.toString();
+        return toHexString(getSHA1(src));
     }
 
     /**
@@ -169,16 +168,7 @@ public class MessageDigestUtils {
      * @return SHA-224
      */
     public static String getSHA224String(byte[] src) {
-        final String sha224 = new BigInteger(1, getSHA224(src)).toString(16);
-        final StringBuilder builder = new StringBuilder();
-        if (sha224.length() < 56) {
-            final int number = 56 - sha224.length();
-            for (int i = 0; i < number; i++) {
-                builder.append("0");
-            }
-        }
-        builder.append(sha224);
-        return builder.toString();
+        return toHexString(getSHA224(src));
     }
 
     /**
@@ -188,16 +178,7 @@ public class MessageDigestUtils {
      * @return SHA-256
      */
     public static String getSHA256String(byte[] src) {
-        final String sha256 = new BigInteger(1, getSHA256(src)).toString(16);
-        final StringBuilder builder = new StringBuilder();
-        if (sha256.length() < 64) {
-            final int number = 64 - sha256.length();
-            for (int i = 0; i < number; i++) {
-                builder.append("0");
-            }
-        }
-        builder.append(sha256);
-        return builder.toString();
+        return toHexString(getSHA256(src));
     }
 
     /**
@@ -207,16 +188,7 @@ public class MessageDigestUtils {
      * @return SHA-384
      */
     public static String getSHA384String(byte[] src) {
-        final String sha384 = new BigInteger(1, getSHA384(src)).toString(16);
-        final StringBuilder builder = new StringBuilder();
-        if (sha384.length() < 96) {
-            final int number = 96 - sha384.length();
-            for (int i = 0; i < number; i++) {
-                builder.append("0");
-            }
-        }
-        builder.append(sha384);
-        return builder.toString();
+        return toHexString(getSHA384(src));
     }
 
     /**
@@ -226,15 +198,198 @@ public class MessageDigestUtils {
      * @return SHA-512
      */
     public static String getSHA512String(byte[] src) {
-        final String sha512 = new BigInteger(1, getSHA512(src)).toString(16);
-        final StringBuilder builder = new StringBuilder();
-        if (sha512.length() < 128) {
-            final int number = 128 - sha512.length();
-            for (int i = 0; i < number; i++) {
-                builder.append("0");
+        return toHexString(getSHA512(src));
+    }
+
+    /**
+     * 转为十六进制字符串（小写）
+     *
+     * @param bytes 数据
+     * @return 十六进制字符串，数据为null时返回null
+     */
+    public static String toHexString(byte[] bytes) {
+        if (bytes == null)
+            return null;
+        final char[] hex = new char[bytes.length * 2];
+        toHexString(bytes, 0, bytes.length, hex, 0);
+        return new String(hex);
+    }
+
+    /**
+     * 转为十六进制字符（小写）写入调用方提供的数组
+     * 查表转换，不分配对象
+     *
+     * @param bytes        数据
+     * @param offset       数据起始位置
+     * @param length       数据长度
+     * @param output       输出，长度应不小于 outputOffset + length * 2
+     * @param outputOffset 输出起始位置
+     * @return 写入的字符数
+     */
+    public static int toHexString(byte[] bytes, int offset, int length, char[] output,
+                                  int outputOffset) {
+        int position = outputOffset;
+        for (int i = offset; i < offset + length; i++) {
+            final int index = (bytes[i] & 0xFF) << 1;
+            output[position++] = HEX_TABLE[index];
+            output[position++] = HEX_TABLE[index + 1];
+        }
+        return position - outputOffset;
+    }
+
+    /**
+     * 获取信息摘要
+     * 读取一次同时计算多个算法，读取到输入流末尾，不关闭输入流
+     *
+     * @param input      输入流
+     * @param algorithms 算法
+     * @return 各算法的信息摘要，与算法的顺序一致，算法不支持时返回null
+     * @throws IOException 异常
+     */
+    public static byte[][] getMessageDigests(InputStream input, String... algorithms)
+            throws IOException {
+        final MultiMessageDigest digest;
+        try {
+            digest = new MultiMessageDigest(algorithms);
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+        digest.update(input);
+        return digest.digest();
+    }
+
+    /**
+     * 获取文件信息摘要
+     * 读取一次同时计算多个算法
+     *
+     * @param file       文件
+     * @param mapped     是否通过内存映射读取
+     * @param algorithms 算法
+     * @return 各算法的信息摘要，与算法的顺序一致，算法不支持时返回null
+     * @throws IOException 异常
+     */
+    public static byte[][] getMessageDigests(File file, boolean mapped, String... algorithms)
+            throws IOException {
+        final MultiMessageDigest digest;
+        try {
+            digest = new MultiMessageDigest(algorithms);
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+        final RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = input.getChannel();
+            if (mapped)
+                digest.updateMapped(channel, 0, channel.size());
+            else
+                digest.update(channel, 0, channel.size());
+        } finally {
+            input.close();
+        }
+        return digest.digest();
+    }
+
+    /**
+     * 获取文件的树形信息摘要
+     * 文件按固定大小分段，多线程并行计算各段摘要 H(0x00 + 段数据)，
+     * 结果为 H(0x01 + 各段摘要依次相连)；空文件视为一个空段。
+     * 结果与整个文件的普通摘要不同，只能与相同分段大小的树形摘要比较。
+     *
+     * @param file        文件
+     * @param segmentSize 分段大小，段数不能超过 {@link Integer#MAX_VALUE}
+     * @param threads     线程数，小于等于1时在调用线程中计算
+     * @param algorithms  算法
+     * @return 各算法的树形信息摘要，与算法的顺序一致，算法不支持时返回null
+     * @throws IOException 异常
+     */
+    public static byte[][] getTreeMessageDigests(File file, final long segmentSize, int threads,
+                                                 final String... algorithms) throws IOException {
+        if (segmentSize <= 0)
+            throw new IllegalArgumentException("Invalid segment size: " + segmentSize);
+        final MessageDigest[] roots = new MessageDigest[algorithms.length];
+        try {
+            for (int i = 0; i < algorithms.length; i++) {
+                roots[i] = MessageDigest.getInstance(algorithms[i]);
+            }
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+        final RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = input.getChannel();
+            final long size = channel.size();
+            final long total = size == 0 ? 1 : (size - 1) / segmentSize + 1;
+            if (total > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("Too many segments: " + total);
+            final int segments = (int) total;
+            final byte[][][] leaves = new byte[segments][][];
+            final AtomicInteger next = new AtomicInteger();
+            final Throwable[] error = new Throwable[1];
+            final Runnable task = new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        final MultiMessageDigest leaf = new MultiMessageDigest(algorithms);
+                        int index;
+                        while ((index = next.getAndIncrement()) < segments) {
+                            leaf.update((byte) 0x00);
+                            leaf.update(channel, index * segmentSize, segmentSize);
+                            leaves[index] = leaf.digest();
+                        }
+                    } catch (NoSuchAlgorithmException e) {
+                        // 已校验过
+                    } catch (Throwable t) {
+                        synchronized (error) {
+                            if (error[0] == null)
+                                error[0] = t;
+                        }
+                        next.set(segments);
+                    }
+                }
+            };
+            final int count = Math.min(Math.max(1, threads), segments);
+            final Thread[] helpers = new Thread[count - 1];
+            for (int i = 0; i < helpers.length; i++) {
+                helpers[i] = new Thread(task, "MessageDigest-" + i);
+                helpers[i].start();
+            }
+            task.run();
+            boolean interrupted = false;
+            for (Thread helper : helpers) {
+                while (true) {
+                    try {
+                        helper.join();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+            final Throwable throwable;
+            synchronized (error) {
+                throwable = error[0];
+            }
+            if (throwable instanceof IOException)
+                throw (IOException) throwable;
+            if (throwable instanceof RuntimeException)
+                throw (RuntimeException) throwable;
+            if (throwable instanceof Error)
+                throw (Error) throwable;
+            if (throwable != null)
+                throw new RuntimeException(throwable);
+            final byte[][] results = new byte[algorithms.length][];
+            for (int i = 0; i < algorithms.length; i++) {
+                roots[i].update((byte) 0x01);
+                for (byte[][] leaf : leaves) {
+                    roots[i].update(leaf[i]);
+                }
+                results[i] = roots[i].digest();
             }
+            return results;
+        } finally {
+            input.close();
         }
-        builder.append(sha512);
-        return builder.toString();
     }
 }
@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2015 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.security;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 多算法信息摘要
+ * 同一份数据只读取一次，同时计算多个算法的摘要（如MD5与SHA-256）；
+ * 可从数组、缓冲、输入流、文件通道（按位置读取或内存映射）读取数据。
+ * 非线程安全。
+ * Created by Alex on 2026/10/17.
+ */
+@SuppressWarnings("all")
+public class MultiMessageDigest {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long MAP_SIZE = 64 * 1024 * 1024;// 每次映射的大小，避免占满地址空间
+    private final String[] mAlgorithms;
+    private final MessageDigest[] mDigests;
+    private byte[] mBuffer;
+
+    /**
+     * 构造
+     *
+     * @param algorithms 算法
+     * @throws NoSuchAlgorithmException 异常
+     */
+    public MultiMessageDigest(String... algorithms) throws NoSuchAlgorithmException {
+        if (algorithms == null || algorithms.length == 0)
+            throw new IllegalArgumentException("No algorithm");
+        mAlgorithms = algorithms.clone();
+        mDigests = new MessageDigest[algorithms.length];
+        for (int i = 0; i < algorithms.length; i++) {
+            mDigests[i] = MessageDigest.getInstance(algorithms[i]);
+        }
+    }
+
+    private byte[] getBuffer() {
+        if (mBuffer == null)
+            mBuffer = new byte[BUFFER_SIZE];
+        return mBuffer;
+    }
+
+    /**
+     * 获取算法
+     *
+     * @return 算法，与摘要的顺序一致
+     */
+    public String[] getAlgorithms() {
+        return mAlgorithms.clone();
+    }
+
+    /**
+     * 更新数据
+     *
+     * @param input 数据
+     */
+    public void update(byte input) {
+        for (MessageDigest digest : mDigests) {
+            digest.update(input);
+        }
+    }
+
+    /**
+     * 更新数据
+     *
+     * @param input 数据
+     */
+    public void update(byte[] input) {
+        update(input, 0, input.length);
+    }
+
+    /**
+     * 更新数据
+     *
+     * @param input  数据
+     * @param offset 起始位置
+     * @param length 长度
+     */
+    public void update(byte[] input, int offset, int length) {
+        for (MessageDigest digest : mDigests) {
+            digest.update(input, offset, length);
+        }
+    }
+
+    /**
+     * 更新数据
+     * 读取缓冲的剩余数据，缓冲位置移到末尾；直接缓冲（含内存映射）先分块复制一次，各算法共用
+     *
+     * @param input 数据
+     */
+    public void update(ByteBuffer input) {
+        if (input.hasArray()) {
+            update(input.array(), input.arrayOffset() + input.position(), input.remaining());
+            input.position(input.limit());
+            return;
+        }
+        final byte[] buffer = getBuffer();
+        while (input.hasRemaining()) {
+            final int length = Math.min(buffer.length, input.remaining());
+            input.get(buffer, 0, length);
+            update(buffer, 0, length);
+        }
+    }
+
+    /**
+     * 更新数据
+     * 读取到输入流末尾，不关闭输入流
+     *
+     * @param input 输入流
+     * @return 读取的长度
+     * @throws IOException 异常
+     */
+    public long update(InputStream input) throws IOException {
+        final byte[] buffer = getBuffer();
+        long total = 0;
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            update(buffer, 0, read);
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * 更新数据
+     * 按位置读取，不改变通道的位置
+     *
+     * @param channel  文件通道
+     * @param position 起始位置
+     * @param size     长度，超出文件末尾时读取到末尾
+     * @return 读取的长度
+     * @throws IOException 异常
+     */
+    public long update(FileChannel channel, long position, long size) throws IOException {
+        final byte[] buffer = getBuffer();
+        final ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+        long total = 0;
+        while (total < size) {
+            wrapped.clear();
+            wrapped.limit((int) Math.min(buffer.length, size - total));
+            final int read = channel.read(wrapped, position + total);
+            if (read <= 0)
+                break;
+            update(buffer, 0, read);
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * 通过内存映射更新数据
+     * 按固定大小分次映射，不改变通道的位置；读取由缺页完成，不经过系统调用
+     *
+     * @param channel  文件通道（可读）
+     * @param position 起始位置
+     * @param size     长度，超出文件末尾时读取到末尾
+     * @return 读取的长度
+     * @throws IOException 异常
+     */
+    public long updateMapped(FileChannel channel, long position, long size) throws IOException {
+        final long end = Math.min(channel.size(), position + size);
+        long current = position;
+        while (current < end) {
+            final long length = Math.min(MAP_SIZE, end - current);
+            final MappedByteBuffer mapped =
+                    channel.map(FileChannel.MapMode.READ_ONLY, current, length);
+            update(mapped);
+            current += length;
+        }
+        return Math.max(0, current - position);
+    }
+
+    /**
+     * 完成计算
+     * 完成后重置，可继续用于下一份数据
+     *
+     * @return 各算法的摘要，与算法的顺序一致
+     */
+    public byte[][] digest() {
+        final byte[][] results = new byte[mDigests.length][];
+        for (int i = 0; i < mDigests.length; i++) {
+            results[i] = mDigests[i].digest();
+        }
+        return results;
+    }
+
+    /**
+     * 重置
+     */
+    public void reset() {
+        for (MessageDigest digest : mDigests) {
+            digest.reset();
+        }
+    }
+}
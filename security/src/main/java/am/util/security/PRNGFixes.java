@@ -27,6 +27,7 @@ import java.security.Provider;
 import java.security.SecureRandom;
 import java.security.SecureRandomSpi;
 import java.security.Security;
+import java.util.Arrays;
 
 /**
  * Fixes for the output of the default PRNG having low entropy.
@@ -167,6 +168,17 @@ public final class PRNGFixes {
         }
     }
 
+    /**
+     * Discards PRNG output buffered by {@link LinuxPRNGSecureRandom} and mixes
+     * a fresh device- and invocation-specific seed into the Linux PRNG. Call
+     * it in a child process right after fork, before generating any keys or
+     * IVs. Buffers filled by another process are also detected and discarded
+     * automatically, this only makes it explicit.
+     */
+    public static void reseed() {
+        LinuxPRNGSecureRandom.reseed();
+    }
+
     /**
      * {@link SecureRandomSpi} which passes all requests to the Linux PRNG (
      * {@code /dev/urandom}).
@@ -180,9 +192,18 @@ public final class PRNGFixes {
 		 * build fingerprint, and hardware serial number (where available) into
 		 * Linux PRNG.
 		 * 
-		 * Concurrency: Read requests to the underlying Linux PRNG are
-		 * serialized (on sLock) to ensure that multiple threads do not get
-		 * duplicated PRNG output.
+		 * Concurrency: Reads are spread over STRIPE_COUNT stripes selected by
+		 * thread id, each with its own /dev/urandom stream and a buffer
+		 * refilled BUFFER_SIZE bytes at a time, so that concurrent threads
+		 * neither serialize on one lock nor make a syscall per request. Bytes
+		 * handed out are removed from (and zeroed in) the stripe's buffer under
+		 * the stripe's lock, so no two callers ever get the same PRNG output.
+		 *
+		 * Buffered output was pulled from the Linux PRNG before it was handed
+		 * out. It is discarded when the client explicitly mixes in a seed (so
+		 * that later output follows the seed), when the buffer was filled by
+		 * another process (fork), and on reseed(). Requests of at least
+		 * BUFFER_SIZE bytes and generateSeed() bypass the buffer.
 		 */
 
         /**
@@ -192,15 +213,24 @@ public final class PRNGFixes {
 
         private static final File URANDOM_FILE = new File("/dev/urandom");
 
+        private static final int STRIPE_COUNT = 8;// must be a power of two
+
+        private static final int BUFFER_SIZE = 4096;
+
         private static final Object sLock = new Object();
 
+        private static final Stripe[] STRIPES = new Stripe[STRIPE_COUNT];
+
+        static {
+            for (int i = 0; i < STRIPE_COUNT; i++) {
+                STRIPES[i] = new Stripe();
+            }
+        }
+
         /**
-         * Input stream for reading from Linux PRNG or {@code null} if not yet
-         * opened.
-         *
-         * @GuardedBy("sLock")
+         * Incremented whenever buffered output must no longer be handed out.
          */
-        private static DataInputStream sUrandomIn;
+        private static volatile int sGeneration;
 
         /**
          * Output stream for writing to Linux PRNG or {@code null} if not yet
@@ -217,8 +247,23 @@ public final class PRNGFixes {
          */
         private boolean mSeeded;
 
+        static void reseed() {
+            sGeneration++;
+            mixSeed(generateSeed());
+        }
+
         @Override
         protected void engineSetSeed(byte[] bytes) {
+            try {
+                mixSeed(bytes);
+            } finally {
+                // Output buffered before the client's seed must not follow it.
+                sGeneration++;
+                mSeeded = true;
+            }
+        }
+
+        private static void mixSeed(byte[] bytes) {
             try {
                 OutputStream out;
                 synchronized (sLock) {
@@ -231,26 +276,25 @@ public final class PRNGFixes {
                 // Log and ignore.
                 Log.w(PRNGFixes.class.getSimpleName(),
                         "Failed to mix seed into " + URANDOM_FILE);
-            } finally {
-                mSeeded = true;
             }
         }
 
         @Override
         protected void engineNextBytes(byte[] bytes) {
             if (!mSeeded) {
-                // Mix in the device- and invocation-specific seed.
-                engineSetSeed(generateSeed());
+                // Mix in the device- and invocation-specific seed. This does
+                // not invalidate the buffers: it is mixed in by every new
+                // instance, and the buffered output is already per-process.
+                mixSeed(generateSeed());
+                mSeeded = true;
             }
-
+            final Stripe stripe = STRIPES[
+                    (int) Thread.currentThread().getId() & (STRIPE_COUNT - 1)];
             try {
-                DataInputStream in;
-                synchronized (sLock) {
-                    in = getUrandomInputStream();
-                }
-                synchronized (in) {
-                    in.readFully(bytes);
-                }
+                if (bytes.length >= BUFFER_SIZE)
+                    stripe.readDirect(bytes);
+                else
+                    stripe.read(bytes);
             } catch (IOException e) {
                 throw new SecurityException("Failed to read from "
                         + URANDOM_FILE, e);
@@ -259,36 +303,80 @@ public final class PRNGFixes {
 
         @Override
         protected byte[] engineGenerateSeed(int size) {
+            if (!mSeeded) {
+                mixSeed(generateSeed());
+                mSeeded = true;
+            }
             byte[] seed = new byte[size];
-            engineNextBytes(seed);
+            try {
+                STRIPES[(int) Thread.currentThread().getId() & (STRIPE_COUNT - 1)]
+                        .readDirect(seed);
+            } catch (IOException e) {
+                throw new SecurityException("Failed to read from "
+                        + URANDOM_FILE, e);
+            }
             return seed;
         }
 
-        private DataInputStream getUrandomInputStream() {
+        private static OutputStream getUrandomOutputStream() throws IOException {
             synchronized (sLock) {
-                if (sUrandomIn == null) {
-                    // NOTE: Consider inserting a BufferedInputStream between
-                    // DataInputStream and FileInputStream if you need higher
-                    // PRNG output performance and can live with future PRNG
-                    // output being pulled into this process prematurely.
+                if (sUrandomOut == null) {
+                    sUrandomOut = new FileOutputStream(URANDOM_FILE);
+                }
+                return sUrandomOut;
+            }
+        }
+
+        /**
+         * A /dev/urandom stream with its own buffer, guarded by itself.
+         */
+        private static class Stripe {
+
+            private final byte[] mBuffer = new byte[BUFFER_SIZE];
+            private DataInputStream mInput;
+            private int mPosition = BUFFER_SIZE;
+            private int mGeneration;
+            private int mPid;
+
+            private DataInputStream getInput() {
+                if (mInput == null) {
                     try {
-                        sUrandomIn = new DataInputStream(new FileInputStream(
+                        mInput = new DataInputStream(new FileInputStream(
                                 URANDOM_FILE));
                     } catch (IOException e) {
                         throw new SecurityException("Failed to open "
                                 + URANDOM_FILE + " for reading", e);
                     }
                 }
-                return sUrandomIn;
+                return mInput;
             }
-        }
 
-        private OutputStream getUrandomOutputStream() throws IOException {
-            synchronized (sLock) {
-                if (sUrandomOut == null) {
-                    sUrandomOut = new FileOutputStream(URANDOM_FILE);
+            synchronized void readDirect(byte[] bytes) throws IOException {
+                getInput().readFully(bytes);
+            }
+
+            synchronized void read(byte[] bytes) throws IOException {
+                if (mGeneration != sGeneration || mPid != Process.myPid()) {
+                    // Filled before a seed was mixed in, or by the parent
+                    // process before fork.
+                    Arrays.fill(mBuffer, mPosition, BUFFER_SIZE, (byte) 0);
+                    mPosition = BUFFER_SIZE;
+                }
+                int offset = 0;
+                while (offset < bytes.length) {
+                    if (mPosition == BUFFER_SIZE) {
+                        mGeneration = sGeneration;
+                        mPid = Process.myPid();
+                        getInput().readFully(mBuffer);
+                        mPosition = 0;
+                    }
+                    final int count = Math.min(bytes.length - offset,
+                            BUFFER_SIZE - mPosition);
+                    System.arraycopy(mBuffer, mPosition, bytes, offset, count);
+                    Arrays.fill(mBuffer, mPosition, mPosition + count, (byte) 0);
+                    mPosition += count;
+                    offset += count;
                 }
-                return sUrandomOut;
             }
         }
     }
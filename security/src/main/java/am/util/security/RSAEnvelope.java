@@ -0,0 +1,405 @@
+/*
+ * Copyright (C) 2015 AlexMofer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package am.util.security;
+
+import android.os.Build;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * RSA数字信封
+ * 每条消息生成随机的 AES-256 密钥，以RSA公钥（OAEP）加密后放在消息头中，消息体按段以 AES/GCM 流式加密，长度不受RSA分组限制；
+ * 消息格式：标识“AMRE”（4字节）、版本（1字节）、分段大小（4字节）、加密密钥长度（2字节）、加密密钥，之后为各段（密文 + 16字节标签）。
+ * 每段的IV为 7字节0 + 段序号（4字节）+ 是否为最后一段（1字节），消息头作为每段的附加认证数据，
+ * 段被替换、调换顺序、截断或消息头被修改均无法通过校验；密钥每条消息不同，IV无需随机。
+ * 解密流读到校验失败的段时抛出IOException，此前读出的数据不可信。
+ * 需要 Android 4.4 及以上（GCMParameterSpec、Cipher.updateAAD）。
+ * Created by Alex on 2026/10/17.
+ */
+@SuppressWarnings("all")
+public class RSAEnvelope {
+
+    public static final int CHUNK_SIZE = 64 * 1024;
+    private static final String ALGORITHM = "AES";
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final byte[] MAGIC = {'A', 'M', 'R', 'E'};
+    private static final byte VERSION = 1;
+    private static final int KEY_SIZE = 32;
+    private static final int TAG_SIZE = 16;
+    private static final int IV_SIZE = 12;
+    private static final int CHUNK_SIZE_MAX = 16 * 1024 * 1024;
+
+    private RSAEnvelope() {
+        //no instance
+    }
+
+    private static void checkVersion() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT)
+            throw new UnsupportedOperationException("Requires Android 4.4 or above");
+    }
+
+    /**
+     * 加密
+     *
+     * @param publicKey 公钥字节
+     * @param data      明文
+     * @return 数字信封
+     * @throws GeneralSecurityException 异常
+     */
+    public static byte[] encrypt(byte[] publicKey, byte[] data) throws GeneralSecurityException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream(data.length
+                + (data.length / CHUNK_SIZE + 1) * TAG_SIZE + 512);
+        try {
+            final OutputStream stream = encrypt(publicKey, output);
+            stream.write(data);
+            stream.close();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);// 内存流不会发生
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * 解密
+     *
+     * @param privateKey 私钥字节
+     * @param envelope   数字信封
+     * @return 明文
+     * @throws GeneralSecurityException 校验失败等异常
+     */
+    public static byte[] decrypt(byte[] privateKey, byte[] envelope)
+            throws GeneralSecurityException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream(envelope.length);
+        try {
+            final InputStream stream = decrypt(privateKey, new ByteArrayInputStream(envelope));
+            final byte[] buffer = new byte[8 * 1024];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            stream.close();
+        } catch (IOException e) {
+            if (e.getCause() instanceof GeneralSecurityException)
+                throw (GeneralSecurityException) e.getCause();
+            throw new GeneralSecurityException(e.getMessage(), e);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * 创建加密输出流
+     * 立即写入消息头，写入的数据按段加密后写入输出流，关闭时写入最后一段并关闭输出流
+     *
+     * @param publicKey 公钥字节
+     * @param output    输出流
+     * @return 加密输出流
+     * @throws GeneralSecurityException 异常
+     * @throws IOException              异常
+     */
+    public static OutputStream encrypt(byte[] publicKey, OutputStream output)
+            throws GeneralSecurityException, IOException {
+        checkVersion();
+        //修复OpenSSL的PRNG问题(在4.3及以下版本需要)
+        PRNGFixes.apply();
+        final byte[] key = new byte[KEY_SIZE];
+        new SecureRandom().nextBytes(key);
+        final Cipher rsa = Cipher.getInstance(RSAUtil.TRANSFORMATION);
+        rsa.init(Cipher.ENCRYPT_MODE, RSAUtil.getPublicKey(publicKey));
+        final byte[] wrapped = rsa.doFinal(key);
+        final byte[] header = ByteBuffer.allocate(MAGIC.length + 1 + 4 + 2 + wrapped.length)
+                .put(MAGIC).put(VERSION).putInt(CHUNK_SIZE).putShort((short) wrapped.length)
+                .put(wrapped).array();
+        output.write(header);
+        final Chunks chunks = new Chunks(new SecretKeySpec(key, ALGORITHM), header, CHUNK_SIZE);
+        Arrays.fill(key, (byte) 0);
+        return new EncryptOutputStream(output, chunks);
+    }
+
+    /**
+     * 创建解密输入流
+     * 立即读取消息头并解密密钥，读取时按段解密并校验，关闭时关闭输入流
+     *
+     * @param privateKey 私钥字节
+     * @param input      输入流
+     * @return 解密输入流
+     * @throws GeneralSecurityException 密钥无法解密等异常
+     * @throws IOException              格式错误或读取异常
+     */
+    public static InputStream decrypt(byte[] privateKey, InputStream input)
+            throws GeneralSecurityException, IOException {
+        checkVersion();
+        final DataInputStream data = new DataInputStream(input);
+        final byte[] magic = new byte[MAGIC.length];
+        data.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC))
+            throw new IOException("Not an envelope");
+        if (data.readByte() != VERSION)
+            throw new IOException("Unsupported version");
+        final int chunkSize = data.readInt();
+        final int wrappedLength = data.readUnsignedShort();
+        if (chunkSize <= 0 || chunkSize > CHUNK_SIZE_MAX || wrappedLength == 0)
+            throw new IOException("Corrupted header");
+        final byte[] wrapped = new byte[wrappedLength];
+        data.readFully(wrapped);
+        final byte[] header = ByteBuffer.allocate(MAGIC.length + 1 + 4 + 2 + wrappedLength)
+                .put(MAGIC).put(VERSION).putInt(chunkSize).putShort((short) wrappedLength)
+                .put(wrapped).array();
+        final Cipher rsa = Cipher.getInstance(RSAUtil.TRANSFORMATION);
+        rsa.init(Cipher.DECRYPT_MODE, RSAUtil.getPrivateKey(privateKey));
+        final byte[] key = rsa.doFinal(wrapped);
+        if (key.length != KEY_SIZE)
+            throw new GeneralSecurityException("Invalid content key");
+        final Chunks chunks = new Chunks(new SecretKeySpec(key, ALGORITHM), header, chunkSize);
+        Arrays.fill(key, (byte) 0);
+        return new DecryptInputStream(input, chunks);
+    }
+
+    /**
+     * 分段加密解密
+     */
+    private static class Chunks {
+
+        private final SecretKeySpec mKey;
+        private final byte[] mHeader;
+        private final int mChunkSize;
+        private final Cipher mCipher;
+        private final byte[] mIv = new byte[IV_SIZE];
+        private int mIndex;
+
+        Chunks(SecretKeySpec key, byte[] header, int chunkSize) throws GeneralSecurityException {
+            mKey = key;
+            mHeader = header;
+            mChunkSize = chunkSize;
+            mCipher = Cipher.getInstance(TRANSFORMATION);
+        }
+
+        int process(int mode, byte[] input, int length, byte[] output, boolean last)
+                throws GeneralSecurityException {
+            if (mIndex < 0)
+                throw new GeneralSecurityException("Too many chunks");
+            final int index = mIndex++;
+            mIv[IV_SIZE - 5] = (byte) (index >>> 24);
+            mIv[IV_SIZE - 4] = (byte) (index >>> 16);
+            mIv[IV_SIZE - 3] = (byte) (index >>> 8);
+            mIv[IV_SIZE - 2] = (byte) index;
+            mIv[IV_SIZE - 1] = (byte) (last ? 1 : 0);
+            mCipher.init(mode, mKey, new GCMParameterSpec(TAG_SIZE * 8, mIv));
+            mCipher.updateAAD(mHeader);
+            return mCipher.doFinal(input, 0, length, output, 0);
+        }
+    }
+
+    private static class EncryptOutputStream extends FilterOutputStream {
+
+        private final Chunks mChunks;
+        private final byte[] mBuffer;
+        private final byte[] mOutput;
+        private int mCount;
+        private boolean mClosed;
+
+        EncryptOutputStream(OutputStream out, Chunks chunks) {
+            super(out);
+            mChunks = chunks;
+            mBuffer = new byte[chunks.mChunkSize];
+            mOutput = new byte[chunks.mChunkSize + TAG_SIZE];
+        }
+
+        private void ensureOpen() throws IOException {
+            if (mClosed)
+                throw new IOException("Stream closed");
+        }
+
+        private void emit(boolean last) throws IOException {
+            final int size;
+            try {
+                size = mChunks.process(Cipher.ENCRYPT_MODE, mBuffer, mCount, mOutput, last);
+            } catch (GeneralSecurityException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+            out.write(mOutput, 0, size);
+            mCount = 0;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ensureOpen();
+            if ((off | len | (off + len) | (b.length - (off + len))) < 0)
+                throw new IndexOutOfBoundsException();
+            while (len > 0) {
+                if (mCount == mBuffer.length)
+                    emit(false);// 确认还有数据后才写出整段，最后一段在关闭时写出
+                final int count = Math.min(len, mBuffer.length - mCount);
+                System.arraycopy(b, off, mBuffer, mCount, count);
+                mCount += count;
+                off += count;
+                len -= count;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            ensureOpen();
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (mClosed)
+                return;
+            mClosed = true;
+            try {
+                emit(true);
+                out.flush();
+            } finally {
+                Arrays.fill(mBuffer, (byte) 0);
+                out.close();
+            }
+        }
+    }
+
+    private static class DecryptInputStream extends FilterInputStream {
+
+        private final Chunks mChunks;
+        private final byte[] mInput;// 多读一个字节用于判断是否为最后一段
+        private final byte[] mOutput;
+        private int mPending;// mInput 中已读取的字节数
+        private int mPosition;
+        private int mCount;
+        private boolean mFinished;
+
+        DecryptInputStream(InputStream in, Chunks chunks) {
+            super(in);
+            mChunks = chunks;
+            mInput = new byte[chunks.mChunkSize + TAG_SIZE + 1];
+            mOutput = new byte[chunks.mChunkSize + TAG_SIZE];
+        }
+
+        /**
+         * 读取并解密下一段
+         *
+         * @return 是否还有数据
+         */
+        private boolean fill() throws IOException {
+            while (!mFinished && mPosition >= mCount) {
+                while (mPending < mInput.length) {
+                    final int read = in.read(mInput, mPending, mInput.length - mPending);
+                    if (read == -1)
+                        break;
+                    mPending += read;
+                }
+                final boolean last = mPending < mInput.length;
+                final int length = last ? mPending : mInput.length - 1;
+                if (length < TAG_SIZE)
+                    throw new EOFException("Truncated envelope");
+                try {
+                    mCount = mChunks.process(Cipher.DECRYPT_MODE, mInput, length, mOutput, last);
+                } catch (GeneralSecurityException e) {
+                    throw new IOException("Authentication failed", e);
+                }
+                mPosition = 0;
+                if (last) {
+                    mFinished = true;
+                    mPending = 0;
+                } else {
+                    mInput[0] = mInput[mInput.length - 1];
+                    mPending = 1;
+                }
+            }
+            return mPosition < mCount;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill())
+                return -1;
+            return mOutput[mPosition++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if ((off | len | (off + len) | (b.length - (off + len))) < 0)
+                throw new IndexOutOfBoundsException();
+            if (len == 0)
+                return 0;
+            if (!fill())
+                return -1;
+            final int count = Math.min(len, mCount - mPosition);
+            System.arraycopy(mOutput, mPosition, b, off, count);
+            mPosition += count;
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = 0;
+            while (skipped < n && fill()) {
+                final int count = (int) Math.min(n - skipped, mCount - mPosition);
+                mPosition += count;
+                skipped += count;
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return mCount - mPosition;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void mark(int readlimit) {
+        }
+
+        @Override
+        public void reset() throws IOException {
+            throw new IOException("mark/reset not supported");
+        }
+
+        @Override
+        public void close() throws IOException {
+            Arrays.fill(mOutput, (byte) 0);
+            mPosition = mCount = 0;
+            mFinished = true;
+            in.close();
+        }
+    }
+}
@@ -16,6 +16,10 @@
 
 package am.util.security;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.KeyFactory;
 import java.security.KeyPair;
@@ -28,6 +32,8 @@ import java.security.SignatureException;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
@@ -42,9 +48,89 @@ import javax.crypto.NoSuchPaddingException;
 public class RSAUtil {
 
     private final static String ALGORITHM = "RSA";
-    private final static String TRANSFORMATION = "RSA/ECB/OAEPWithSHA256AndMGF1Padding";
+    final static String TRANSFORMATION = "RSA/ECB/OAEPWithSHA256AndMGF1Padding";
     private final static int SIZE = 2048;
     private final static String SIGNATURE_ALGORITHM = "SHA256withRSA";
+    private final static int KEY_CACHE_SIZE = 16;
+    private final static int BUFFER_SIZE = 8 * 1024;
+    private final static LinkedHashMap<ByteBuffer, PublicKey> PUBLIC_KEYS =
+            new LinkedHashMap<ByteBuffer, PublicKey>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ByteBuffer, PublicKey> eldest) {
+                    return size() > KEY_CACHE_SIZE;
+                }
+            };
+    private final static LinkedHashMap<ByteBuffer, PrivateKey> PRIVATE_KEYS =
+            new LinkedHashMap<ByteBuffer, PrivateKey>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ByteBuffer, PrivateKey> eldest) {
+                    return size() > KEY_CACHE_SIZE;
+                }
+            };
+
+    /**
+     * 解析公钥
+     * 解析结果按密钥字节缓存（最多16个），同一密钥无需重复解析
+     *
+     * @param key 公钥字节（X.509）
+     * @return 公钥
+     * @throws NoSuchAlgorithmException 异常
+     * @throws InvalidKeySpecException  异常
+     */
+    public static PublicKey getPublicKey(byte[] key) throws
+            NoSuchAlgorithmException,
+            InvalidKeySpecException {
+        final ByteBuffer id = ByteBuffer.wrap(key.clone());
+        synchronized (PUBLIC_KEYS) {
+            final PublicKey cached = PUBLIC_KEYS.get(id);
+            if (cached != null)
+                return cached;
+        }
+        final PublicKey publicKey = KeyFactory.getInstance(ALGORITHM)
+                .generatePublic(new X509EncodedKeySpec(key));
+        synchronized (PUBLIC_KEYS) {
+            PUBLIC_KEYS.put(id, publicKey);
+        }
+        return publicKey;
+    }
+
+    /**
+     * 解析私钥
+     * 解析结果按密钥字节缓存（最多16个），同一密钥无需重复解析
+     *
+     * @param key 私钥字节（PKCS#8）
+     * @return 私钥
+     * @throws NoSuchAlgorithmException 异常
+     * @throws InvalidKeySpecException  异常
+     */
+    public static PrivateKey getPrivateKey(byte[] key) throws
+            NoSuchAlgorithmException,
+            InvalidKeySpecException {
+        final ByteBuffer id = ByteBuffer.wrap(key.clone());
+        synchronized (PRIVATE_KEYS) {
+            final PrivateKey cached = PRIVATE_KEYS.get(id);
+            if (cached != null)
+                return cached;
+        }
+        final PrivateKey privateKey = KeyFactory.getInstance(ALGORITHM)
+                .generatePrivate(new PKCS8EncodedKeySpec(key));
+        synchronized (PRIVATE_KEYS) {
+            PRIVATE_KEYS.put(id, privateKey);
+        }
+        return privateKey;
+    }
+
+    /**
+     * 清空已解析密钥的缓存
+     */
+    public static void clearKeyCache() {
+        synchronized (PUBLIC_KEYS) {
+            PUBLIC_KEYS.clear();
+        }
+        synchronized (PRIVATE_KEYS) {
+            PRIVATE_KEYS.clear();
+        }
+    }
 
     /**
      * 公钥加密
@@ -67,8 +153,7 @@ public class RSAUtil {
             InvalidKeyException,
             IllegalBlockSizeException,
             BadPaddingException {
-        PublicKey publicKey = KeyFactory.getInstance(ALGORITHM)
-                .generatePublic(new X509EncodedKeySpec(key));
+        PublicKey publicKey = getPublicKey(key);
         Cipher cipher = Cipher.getInstance(TRANSFORMATION);
         cipher.init(Cipher.ENCRYPT_MODE, publicKey);
         return cipher.doFinal(clear);
@@ -95,8 +180,7 @@ public class RSAUtil {
             InvalidKeyException,
             IllegalBlockSizeException,
             BadPaddingException {
-        PrivateKey privateKey = KeyFactory.getInstance(ALGORITHM)
-                .generatePrivate(new PKCS8EncodedKeySpec(key));
+        PrivateKey privateKey = getPrivateKey(key);
         Cipher cipher = Cipher.getInstance(TRANSFORMATION);
         cipher.init(Cipher.ENCRYPT_MODE, privateKey);
         return cipher.doFinal(clear);
@@ -123,8 +207,7 @@ public class RSAUtil {
             InvalidKeyException,
             IllegalBlockSizeException,
             BadPaddingException {
-        PublicKey publicKey = KeyFactory.getInstance(ALGORITHM)
-                .generatePublic(new X509EncodedKeySpec(key));
+        PublicKey publicKey = getPublicKey(key);
         Cipher cipher = Cipher.getInstance(TRANSFORMATION);
         cipher.init(Cipher.DECRYPT_MODE, publicKey);
         return cipher.doFinal(encrypted);
@@ -151,14 +234,61 @@ public class RSAUtil {
             InvalidKeyException,
             IllegalBlockSizeException,
             BadPaddingException {
-        PrivateKey privateKey = KeyFactory.getInstance(ALGORITHM)
-                .generatePrivate(new PKCS8EncodedKeySpec(key));
+        PrivateKey privateKey = getPrivateKey(key);
         Cipher cipher = Cipher.getInstance(TRANSFORMATION);
         cipher.init(Cipher.DECRYPT_MODE, privateKey);
         return cipher.doFinal(encrypted);
     }
 
 
+    /**
+     * 创建公钥加密解密上下文
+     * 与 {@link #encryptByPublicKey(byte[], byte[])}、{@link #decryptByPublicKey(byte[], byte[])} 结果相同，
+     * 密钥只解析一次，Cipher按线程复用，适用于大量数据使用同一密钥的场景
+     *
+     * @param mode 模式，{@link Cipher#ENCRYPT_MODE} 或 {@link Cipher#DECRYPT_MODE}
+     * @param key  公钥字节
+     * @return 上下文
+     * @throws NoSuchAlgorithmException           异常
+     * @throws InvalidKeySpecException            异常
+     * @throws NoSuchPaddingException             异常
+     * @throws InvalidKeyException                异常
+     * @throws InvalidAlgorithmParameterException 异常
+     */
+    public static CipherContext createPublicKeyContext(int mode, byte[] key) throws
+            NoSuchAlgorithmException,
+            InvalidKeySpecException,
+            NoSuchPaddingException,
+            InvalidKeyException,
+            InvalidAlgorithmParameterException {
+        PublicKey publicKey = getPublicKey(key);
+        return new CipherContext(mode, TRANSFORMATION, publicKey, null);
+    }
+
+    /**
+     * 创建私钥加密解密上下文
+     * 与 {@link #encryptByPrivateKey(byte[], byte[])}、{@link #decryptByPrivateKey(byte[], byte[])} 结果相同，
+     * 密钥只解析一次，Cipher按线程复用，适用于大量数据使用同一密钥的场景
+     *
+     * @param mode 模式，{@link Cipher#ENCRYPT_MODE} 或 {@link Cipher#DECRYPT_MODE}
+     * @param key  私钥字节
+     * @return 上下文
+     * @throws NoSuchAlgorithmException           异常
+     * @throws InvalidKeySpecException            异常
+     * @throws NoSuchPaddingException             异常
+     * @throws InvalidKeyException                异常
+     * @throws InvalidAlgorithmParameterException 异常
+     */
+    public static CipherContext createPrivateKeyContext(int mode, byte[] key) throws
+            NoSuchAlgorithmException,
+            InvalidKeySpecException,
+            NoSuchPaddingException,
+            InvalidKeyException,
+            InvalidAlgorithmParameterException {
+        PrivateKey privateKey = getPrivateKey(key);
+        return new CipherContext(mode, TRANSFORMATION, privateKey, null);
+    }
+
     /**
      * 数字签名
      *
@@ -175,8 +305,7 @@ public class RSAUtil {
             InvalidKeySpecException,
             InvalidKeyException,
             SignatureException {
-        PrivateKey privateKey = KeyFactory.getInstance(ALGORITHM)
-                .generatePrivate(new PKCS8EncodedKeySpec(key));
+        PrivateKey privateKey = getPrivateKey(key);
         Signature signature = Signature.getInstance(SIGNATURE_ALGORITHM);
         signature.initSign(privateKey);
         signature.update(data);
@@ -200,14 +329,76 @@ public class RSAUtil {
             InvalidKeySpecException,
             InvalidKeyException,
             SignatureException {
-        PublicKey publicKey = KeyFactory.getInstance(ALGORITHM)
-                .generatePublic(new X509EncodedKeySpec(key));
+        PublicKey publicKey = getPublicKey(key);
         Signature signature = Signature.getInstance(SIGNATURE_ALGORITHM);
         signature.initVerify(publicKey);
         signature.update(data);
         return signature.verify(sign);
     }
 
+    /**
+     * 数字签名
+     * 分块读取数据，不缓存全部数据，读取到输入流末尾，不关闭输入流
+     *
+     * @param key  私钥字节
+     * @param data 数据
+     * @return 签名字节
+     * @throws NoSuchAlgorithmException 异常
+     * @throws InvalidKeySpecException  异常
+     * @throws InvalidKeyException      异常
+     * @throws SignatureException       异常
+     * @throws IOException              异常
+     */
+    public static byte[] signature(byte[] key, InputStream data) throws
+            NoSuchAlgorithmException,
+            InvalidKeySpecException,
+            InvalidKeyException,
+            SignatureException,
+            IOException {
+        PrivateKey privateKey = getPrivateKey(key);
+        Signature signature = Signature.getInstance(SIGNATURE_ALGORITHM);
+        signature.initSign(privateKey);
+        update(signature, data);
+        return signature.sign();
+    }
+
+    /**
+     * 校验签名
+     * 分块读取数据，不缓存全部数据，读取到输入流末尾，不关闭输入流
+     *
+     * @param key  公钥字节
+     * @param data 数据
+     * @param sign 签名字节
+     * @return 是否通过校验
+     * @throws NoSuchAlgorithmException 异常
+     * @throws InvalidKeySpecException  异常
+     * @throws InvalidKeyException      异常
+     * @throws SignatureException       异常
+     * @throws IOException              异常
+     */
+    public static boolean verify(byte[] key, InputStream data, byte[] sign) throws
+            NoSuchAlgorithmException,
+            InvalidKeySpecException,
+            InvalidKeyException,
+            SignatureException,
+            IOException {
+        PublicKey publicKey = getPublicKey(key);
+        Signature signature = Signature.getInstance(SIGNATURE_ALGORITHM);
+        signature.initVerify(publicKey);
+        update(signature, data);
+        return signature.verify(sign);
+    }
+
+    private static void update(Signature signature, InputStream data) throws
+            SignatureException,
+            IOException {
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = data.read(buffer)) != -1) {
+            signature.update(buffer, 0, read);
+        }
+    }
+
     /**
      * 生成密钥
      *